@@ -0,0 +1,94 @@
+package projectuml;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * CollisionBenchmark
+ *
+ * Measures the cost of finding which shots hit which enemies, the
+ * same way Level does it: the enemies are sorted into a grid, and
+ * every shot is tested against the enemies in its cell. One
+ * operation is one full round of tests, as done once per step.
+ *
+ * @see CollisionGrid
+ * @see Level
+ * @author Jens Thuresson, Steve Eriksson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CollisionBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int enemies;
+    @Param({"100", "1000"})
+    public int shots;
+    private ArrayList<EnemyShip> ships;
+    private Point[] shotpositions;
+    private CollisionGrid<EnemyShip> grid;
+
+    /**
+     * Builds the enemies and scatters them and the shots
+     * over the screen.
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        RandomSource types = new RandomSource(1);
+        EnemyFactory factory = new EnemyFactory();
+        ships = new ArrayList<EnemyShip>();
+        for (int i = 0; i < enemies; ++i) {
+            EnemyShip ship = factory.createRandom(types);
+            ship.setPosition(random.nextInt(600), random.nextInt(440));
+            ships.add(ship);
+        }
+
+        shotpositions = new Point[shots];
+        for (int i = 0; i < shots; ++i) {
+            shotpositions[i] = new Point(random.nextInt(640), random.nextInt(480));
+        }
+        grid = new CollisionGrid<EnemyShip>(640, 480);
+    }
+
+    /**
+     * Gives back the enemies' images to the image cache.
+     */
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        for (EnemyShip ship : ships) {
+            ship.releaseImage();
+        }
+    }
+
+    /**
+     * Fills the grid and tests every shot against it.
+     *
+     * @return Number of hits
+     */
+    @Benchmark
+    public int collide() {
+        grid.clear();
+        for (int i = 0; i < ships.size(); ++i) {
+            grid.add(ships.get(i));
+        }
+
+        int hits = 0;
+        for (int i = 0; i < shotpositions.length; ++i) {
+            Point p = shotpositions[i];
+            int candidates = grid.query(p.x, p.y);
+            for (int c = 0; c < candidates; ++c) {
+                if (grid.getCandidate(c).inShape(p)) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,99 @@
+package projectuml;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * LevelDrawBenchmark
+ *
+ * Measures how long it takes to draw a level into an offscreen
+ * image, both straight from the level and by way of a snapshot
+ * as the running game does. Real images are decoded, instead of
+ * the blank ones used headless, so that there are pixels to draw.
+ * The sprites are drawn either from images of their own or from
+ * a sprite atlas.
+ *
+ * @see Level
+ * @see RenderSnapshot
+ * @see SpriteAtlas
+ * @author Jens Thuresson, Steve Eriksson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LevelDrawBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int enemies;
+    @Param({"100", "1000"})
+    public int shots;
+    @Param({"false", "true"})
+    public boolean atlas;
+    private Level level;
+    private PlayerShip playership;
+    private RenderSnapshot snapshot;
+    private BufferedImage screen;
+    private Graphics2D g2D;
+
+    /**
+     * Builds the level and lets it run for a while, so
+     * that there's a bit of everything to draw.
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        ImageCache.getInstance().setStubbed(false);
+        if (atlas) {
+            ImageCache.getInstance().setAtlas(
+                    SpriteAtlas.build(new File("."), SpriteAtlas.DEFAULT_PAGE_SIZE));
+        }
+        level = HeadlessRunner.createSyntheticLevel(enemies, shots);
+        HeadlessRunner runner = new HeadlessRunner(level);
+        runner.run(20);
+        playership = runner.getPlayerShip();
+        snapshot = new RenderSnapshot();
+        screen = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        g2D = screen.createGraphics();
+    }
+
+    /**
+     * Gives back the level's images to the image cache.
+     */
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        g2D.dispose();
+        level.removeAll();
+        ImageCache.getInstance().setAtlas(null);
+    }
+
+    /**
+     * Draws straight from the level.
+     *
+     * @return The image drawn to
+     */
+    @Benchmark
+    public BufferedImage draw() {
+        level.draw(g2D);
+        playership.draw(g2D);
+        return screen;
+    }
+
+    /**
+     * Captures a snapshot of the level and draws it.
+     *
+     * @return The image drawn to
+     */
+    @Benchmark
+    public BufferedImage captureAndDraw() {
+        snapshot.clear();
+        level.capture(snapshot);
+        playership.capture(snapshot);
+        snapshot.draw(g2D);
+        return screen;
+    }
+}
@@ -0,0 +1,63 @@
+package projectuml;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * LevelUpdateBenchmark
+ *
+ * Measures how many logic steps per second a level manages with
+ * a certain number of enemies and shots. One operation is one
+ * logic step, so the GC profiler's gc.alloc.rate.norm is the
+ * number of bytes allocated per step.
+ * The shots are topped up before every step, since they otherwise
+ * leave the screen after a while.
+ *
+ * @see Level
+ * @see HeadlessRunner
+ * @author Jens Thuresson, Steve Eriksson
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LevelUpdateBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int enemies;
+    @Param({"100", "1000"})
+    public int shots;
+    private HeadlessRunner runner;
+
+    /**
+     * Builds a new level for every iteration, so that
+     * they all start out the same.
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void setUp() {
+        runner = new HeadlessRunner(HeadlessRunner.createSyntheticLevel(enemies, shots));
+    }
+
+    /**
+     * Gives back the level's images to the image cache.
+     */
+    @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+    public void tearDown() {
+        runner.getLevel().removeAll();
+    }
+
+    /**
+     * A single logic step.
+     */
+    @Benchmark
+    public void update() {
+        Level level = runner.getLevel();
+        int missing = shots - level.getEntityCount();
+        if (missing > 0) {
+            HeadlessRunner.addSyntheticShots(level, missing);
+        }
+        runner.tick();
+    }
+}
@@ -6,26 +6,34 @@ import java.util.ArrayList;
 /**
  * AnimatedSprite
  *
- * Subclass of Sprite that hold a list of images and draws them to screen 
+ * Subclass of Sprite that draws the frames of an animation to screen
  * in a given time interval.
- * All images should be added to imageList before it is activated.
+ * The frames belong to an AnimationDefinition, which is usually shared
+ * with every other sprite playing the same animation. The sprite itself
+ * only keeps track of how far it has come.
+ * All images should be added before it is activated.
+ * The first frame is shown by the first update after it's activated.
+ * Every following frame is shown by a timer event, scheduled on the
+ * level when the frame before it was shown.
  * By default Sprites are deactivated and hidden.
  * 
  * @see Sprite
+ * @see AnimationDefinition
  * @author Steve Eriksson, Jens Thuresson
  */
 public class AnimatedSprite extends Sprite {
 
     private static final long serialVersionUID = 1L;
-    private Timestamp time; // Timer
     private long speed;     // Amount of time one image should be shown
     private int runtime;    // Total running time of animation
     private int sequence;   // Sequence number of image to draw
-    private Boolean repeat; // Should animation repeat
-    private Boolean done;   // Set to true when we don't repeat and we're done
-    transient private ArrayList<BufferedImage> imageList;  // Images to animate
+    private boolean repeat; // Should animation repeat
+    private boolean done;   // Set to true when we don't repeat and we're done
+    transient private AnimationDefinition definition; // Frames to animate
+    transient private ArrayList<String> imageFiles; // Cached images we hold references to
     transient private boolean soundstarted;
     transient private String soundname;
+    transient private TimerEvent frameevent; // Shows the next frame
     
     /**
      * Create animated sprite and set default runtime
@@ -50,16 +58,30 @@ public class AnimatedSprite extends Sprite {
      * @param runtime in milliseconds
      * @param repeat, true or false
      */
-    public AnimatedSprite(int runtime, Boolean repeat) {
+    public AnimatedSprite(int runtime, boolean repeat) {
+        this(new AnimationDefinition(null, new BufferedImage[0], ""), runtime, repeat);
+    }
+
+    /**
+     * Create animated sprite playing a shared animation
+     * 
+     * @param definition Frames to animate
+     * @param runtime in milliseconds
+     * @param repeat, true or false
+     */
+    public AnimatedSprite(AnimationDefinition definition, int runtime, boolean repeat) {
         done = false;
         this.runtime = runtime;
         this.repeat = repeat;
+        this.definition = definition;
         sequence = 0; // Point to first image in sequence
-        time = new Timestamp();
         speed = 0;
-        imageList = new ArrayList<BufferedImage>();
+        if (definition.getFrameCount() > 0) {
+            speed = runtime / definition.getFrameCount();
+        }
+        imageFiles = new ArrayList<String>();
         soundstarted = false;
-        soundname = "";
+        soundname = definition.getSoundName();
     }
     
     /**
@@ -81,21 +103,61 @@ public class AnimatedSprite extends Sprite {
     }
 
     /**
-     * Add image to the list of images to be animated
-     * and update the animation speed.
+     * Retrieves the animation being played.
+     * 
+     * @return AnimationDefinition
+     */
+    public AnimationDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Add image to the images to be animated and update
+     * the animation speed. The sprite gets an animation
+     * of its own, so a shared one is left as it is.
      */
     public void addImage(BufferedImage image) {
-        imageList.add(image);
-        speed = runtime / imageList.size();
+        definition = definition.append(image);
+        speed = runtime / definition.getFrameCount();
+    }
+
+    /**
+     * Load an image through the image cache and add it
+     * to the list of images to be animated.
+     * 
+     * @param filename Path to image
+     * @return True if the image could be loaded
+     */
+    public boolean addImageFrom(String filename) {
+        BufferedImage image = ImageCache.getInstance().acquire(filename);
+        if (image == null) {
+            return false;
+        }
+        imageFiles.add(filename);
+        addImage(image);
+        return true;
+    }
+
+    /**
+     * Gives back the references to the images this sprite
+     * has loaded itself. Those of a shared animation are
+     * held by the registry.
+     */
+    public void releaseImage() {
+        super.releaseImage();
+        for (String filename : imageFiles) {
+            ImageCache.getInstance().release(filename);
+        }
+        imageFiles.clear();
     }
 
     /**
      * Update state of animation.
-     * Change image if the configured time has passed.
+     * Starts the animation, unless it's already running.
      * If the animation isn't looped future updates will be 
      * ignored when it reaches the end of the sequence.
      * 
-     * @param level reference which isn't used by thos object
+     * @param level reference to current level
      */
     public void update(Level level) {
         if (isActive()) {
@@ -103,31 +165,69 @@ public class AnimatedSprite extends Sprite {
                 level.playSound(soundname);
                 soundstarted = true;
             }
-           
-            // Current picture should be changed if the time
-            // set in speed has passed since last update
-            if (time.havePassed(speed)) {
-                setImage(imageList.get(sequence % imageList.size()));
-                sequence++;   // Point to next image
-                time.reset(); // Reset timestamp
-            }
-            // We've gone through the image sequence and should
-            // not loop so make sure no image is displayed
-            if (!repeat && sequence >= imageList.size()) {
-                hide();
-                deactivate();
-                done = true; // Animation is done!
+            if (!done && !getFrameEvent().isScheduled()) {
+                nextFrame(level);
             }
         }
     }
 
+    /**
+     * Shows the next image, and schedules the one after it.
+     * 
+     * @param level reference to current level
+     */
+    private void nextFrame(Level level) {
+        if (!isActive() || done) {
+            return;
+        }
+        int count = definition.getFrameCount();
+        if (count > 0 && (repeat || sequence < count)) {
+            int index = sequence % count;
+            setImage(definition.getFrame(index), definition.getRegion(index));
+            sequence++;   // Point to next image
+        }
+        // We've gone through the image sequence and should
+        // not loop so make sure no image is displayed
+        if (!repeat && sequence >= count) {
+            hide();
+            deactivate();
+            done = true; // Animation is done!
+        } else {
+            level.schedule(frameevent, speed);
+        }
+    }
+
+    /**
+     * The event that shows the next frame.
+     */
+    private TimerEvent getFrameEvent() {
+        if (frameevent == null) {
+            frameevent = new TimerEvent() {
+
+                public void fire(Level level) {
+                    nextFrame(level);
+                }
+            };
+        }
+        return frameevent;
+    }
+
+    /**
+     * Stops the animation where it is.
+     */
+    public void cancelTimers() {
+        if (frameevent != null) {
+            frameevent.cancel();
+        }
+    }
+
     
     /**
      * Returns true if the animation is done.
      *
      * @return true or false
      */
-    public Boolean isDone() {
+    public boolean isDone() {
         return done;
     }
 
@@ -142,6 +242,7 @@ public class AnimatedSprite extends Sprite {
      * Reset animation
      */
     public void reset() {
+        cancelTimers();
         sequence = 0; // First image in sequence
         done = false;
         soundstarted = false;
@@ -0,0 +1,100 @@
+package projectuml;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * AnimationDefinition
+ *
+ * The frames of an animation, and the sound played with it. A
+ * definition never changes once it has been created, so it can be
+ * shared by any number of animated sprites, each keeping track of
+ * how far it has come by itself.
+ *
+ * @see AnimatedSprite
+ * @see AnimationRegistry
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public final class AnimationDefinition {
+
+    private String name;
+    private BufferedImage[] frames;
+    private SpriteAtlas.Region[] regions; // Where the frames are in the atlas
+    private String soundname;
+
+    /**
+     * Creates a definition.
+     *
+     * @param name Name of the animation
+     * @param frames Images to animate, in order
+     * @param soundname Sound to play when the animation starts
+     */
+    public AnimationDefinition(String name, BufferedImage[] frames, String soundname) {
+        this.name = name;
+        this.frames = frames.clone();
+        this.soundname = soundname;
+        regions = new SpriteAtlas.Region[frames.length];
+        for (int i = 0; i < frames.length; ++i) {
+            regions[i] = ImageCache.getInstance().getRegion(frames[i]);
+        }
+    }
+
+    /**
+     * Creates a new definition with one more frame at the end.
+     *
+     * @param image Frame to add
+     * @return AnimationDefinition
+     */
+    public AnimationDefinition append(BufferedImage image) {
+        BufferedImage[] more = new BufferedImage[frames.length + 1];
+        System.arraycopy(frames, 0, more, 0, frames.length);
+        more[frames.length] = image;
+        return new AnimationDefinition(name, more, soundname);
+    }
+
+    /**
+     * Name of the animation.
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of frames in the animation.
+     *
+     * @return Number of frames
+     */
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    /**
+     * Retrieves a frame.
+     *
+     * @param index
+     * @return Image
+     */
+    public BufferedImage getFrame(int index) {
+        return frames[index];
+    }
+
+    /**
+     * Where a frame is in the atlas.
+     *
+     * @param index
+     * @return Region, or null if it isn't in the atlas
+     */
+    public SpriteAtlas.Region getRegion(int index) {
+        return regions[index];
+    }
+
+    /**
+     * Sound to play when the animation starts.
+     *
+     * @return Sound name
+     */
+    public String getSoundName() {
+        return soundname;
+    }
+}
@@ -1,15 +1,16 @@
 package projectuml;
 
-import java.awt.image.BufferedImage;
-
 /**
  * AnimationFactory
  * 
  * Factory for animations. The methods in the factory are static,
  * meaning there's no need to instanciate the factory itself 
  * (which makes sense since it doesn't hold any information by itself)
+ * The frames come from the AnimationRegistry, so creating an
+ * animation never loads anything.
  * 
  * @see AnimatedSprite
+ * @see AnimationRegistry
  * @author Jens Thuresson, Steve Eriksson
  */
 public class AnimationFactory {
@@ -30,23 +31,7 @@ public class AnimationFactory {
      * @return AnimatedSprite
      */
     public static AnimatedSprite createExplosion(int time) {
-        AnimatedSprite sprite = new AnimatedSprite(time);
-        // Try to load as many images as
-        // possible on the format "explosionN.png"
-        int i = 1;
-        while (true) {
-            BufferedImage image = sprite.loadImage("explosion" + i + ".png");
-            if (image == null) {
-                // Doesn't exist, break out
-                break;
-            } else {
-                // Add it to the animation sequence
-                // and continue
-                sprite.addImage(image);
-                i += 1;
-            }
-        }
-        sprite.setSoundName("explosion_long");
-        return sprite;
+        AnimationDefinition explosion = AnimationRegistry.getInstance().get(AnimationRegistry.EXPLOSION);
+        return new AnimatedSprite(explosion, time, false);
     }
 }
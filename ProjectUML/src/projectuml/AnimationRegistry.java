@@ -0,0 +1,97 @@
+package projectuml;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * AnimationRegistry
+ *
+ * Process-wide store of animation definitions, keyed by name. The
+ * game's own animations are loaded the first time the registry is
+ * used, which should be at startup, and their frames are then held
+ * for as long as the game runs.
+ *
+ * @see AnimationDefinition
+ * @see AnimationFactory
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public final class AnimationRegistry {
+
+    public static final String EXPLOSION = "explosion";
+    private static AnimationRegistry instance;
+    private HashMap<String, AnimationDefinition> definitions;
+
+    /**
+     * Creates the registry and loads the game's animations.
+     */
+    private AnimationRegistry() {
+        definitions = new HashMap<String, AnimationDefinition>();
+        register(loadSequence(EXPLOSION, "explosion", ".png", "explosion_long"));
+    }
+
+    /**
+     * Retrieves the registry shared by the whole game.
+     *
+     * @return AnimationRegistry
+     */
+    public static synchronized AnimationRegistry getInstance() {
+        if (instance == null) {
+            instance = new AnimationRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Adds a definition, replacing any with the same name.
+     *
+     * @param definition
+     */
+    public synchronized void register(AnimationDefinition definition) {
+        definitions.put(definition.getName(), definition);
+    }
+
+    /**
+     * Retrieves a definition.
+     *
+     * @param name Name of the animation
+     * @return Definition, or null if there's none by that name
+     */
+    public synchronized AnimationDefinition get(String name) {
+        return definitions.get(name);
+    }
+
+    /**
+     * Number of definitions in the registry.
+     *
+     * @return Number of definitions
+     */
+    public synchronized int size() {
+        return definitions.size();
+    }
+
+    /**
+     * Loads as many images as there are on the format
+     * "prefixN.suffix", counting from 1, into a definition.
+     * The images are taken from the image cache, and are held
+     * for good.
+     *
+     * @param name Name of the animation
+     * @param prefix Start of the file names
+     * @param suffix End of the file names
+     * @param soundname Sound to play when the animation starts
+     * @return AnimationDefinition
+     */
+    public static AnimationDefinition loadSequence(String name, String prefix, String suffix,
+            String soundname) {
+        ArrayList<BufferedImage> frames = new ArrayList<BufferedImage>();
+        while (true) {
+            BufferedImage image = ImageCache.getInstance().acquire(prefix + (frames.size() + 1) + suffix);
+            if (image == null) {
+                // Doesn't exist, that was the last one
+                break;
+            }
+            frames.add(image);
+        }
+        return new AnimationDefinition(name, frames.toArray(new BufferedImage[frames.size()]), soundname);
+    }
+}
@@ -0,0 +1,223 @@
+package projectuml;
+
+/**
+ * CollisionGrid
+ *
+ * A uniform grid laid over the playfield, used to quickly find
+ * which sprites might touch a point or an area before the exact
+ * (and more expensive) test is done on them.
+ * Sprites are added to every cell their bounds cover. Sprites
+ * partly or entirely outside the playfield end up in the border
+ * cells. The grid is meant to be cleared and refilled every time
+ * the sprites have moved.
+ * Candidates are always returned in the order their sprites were
+ * added, so that the outcome doesn't depend on the grid layout.
+ *
+ * @see Level
+ * @author Jens Thuresson, Steve Eriksson
+ * @param <E> Type of sprite to hold
+ */
+public class CollisionGrid<E extends Sprite> {
+
+    private static final int CELL_SIZE = 32;
+    private int columns;
+    private int rows;
+    private int[] cellhead;   // First entry in each cell, or -1
+    private int[] entrynext;  // Next entry in the same cell, or -1
+    private int[] entryitem;  // Sprite an entry refers to
+    private int entries;
+    private Object[] items;   // Sprites in the order they were added
+    private int[] itemstamp;  // Last query an item was returned by
+    private int itemcount;
+    private int stamp;
+    private int[] candidates; // Result of the last query
+    private int candidatecount;
+
+    /**
+     * Creates a grid covering the playfield.
+     *
+     * @param width Width of the playfield
+     * @param height Height of the playfield
+     */
+    public CollisionGrid(int width, int height) {
+        columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+        cellhead = new int[columns * rows];
+        entrynext = new int[64];
+        entryitem = new int[64];
+        items = new Object[32];
+        itemstamp = new int[32];
+        candidates = new int[32];
+        clear();
+    }
+
+    /**
+     * Removes all sprites from the grid.
+     */
+    public void clear() {
+        for (int i = 0; i < cellhead.length; ++i) {
+            cellhead[i] = -1;
+        }
+        for (int i = 0; i < itemcount; ++i) {
+            items[i] = null;
+        }
+        entries = 0;
+        itemcount = 0;
+        candidatecount = 0;
+    }
+
+    /**
+     * Adds a sprite to all the cells its bounds cover.
+     *
+     * @param sprite
+     */
+    public void add(E sprite) {
+        if (itemcount == items.length) {
+            Object[] moreitems = new Object[items.length * 2];
+            System.arraycopy(items, 0, moreitems, 0, itemcount);
+            items = moreitems;
+            int[] morestamps = new int[itemstamp.length * 2];
+            System.arraycopy(itemstamp, 0, morestamps, 0, itemcount);
+            itemstamp = morestamps;
+        }
+        int item = itemcount++;
+        items[item] = sprite;
+        itemstamp[item] = stamp;
+
+        int x = sprite.getIntPositionX();
+        int y = sprite.getIntPositionY();
+        int firstcol = column(x);
+        int lastcol = column(x + sprite.getWidth());
+        int firstrow = row(y);
+        int lastrow = row(y + sprite.getHeight());
+        for (int r = firstrow; r <= lastrow; ++r) {
+            for (int c = firstcol; c <= lastcol; ++c) {
+                addEntry(r * columns + c, item);
+            }
+        }
+    }
+
+    /**
+     * Finds the sprites whose cells contain a point.
+     *
+     * @param x
+     * @param y
+     * @return Number of candidates found
+     */
+    public int query(int x, int y) {
+        return query(x, y, 0, 0);
+    }
+
+    /**
+     * Finds the sprites whose cells overlap an area.
+     * The candidates are retrieved with getCandidate().
+     *
+     * @param x Left edge of the area
+     * @param y Top edge of the area
+     * @param width
+     * @param height
+     * @return Number of candidates found
+     */
+    public int query(int x, int y, int width, int height) {
+        candidatecount = 0;
+        // New stamp, so that sprites covering several
+        // cells are only returned once
+        stamp++;
+        int firstcol = column(x);
+        int lastcol = column(x + width);
+        int firstrow = row(y);
+        int lastrow = row(y + height);
+        for (int r = firstrow; r <= lastrow; ++r) {
+            for (int c = firstcol; c <= lastcol; ++c) {
+                for (int e = cellhead[r * columns + c]; e != -1; e = entrynext[e]) {
+                    int item = entryitem[e];
+                    if (itemstamp[item] != stamp) {
+                        itemstamp[item] = stamp;
+                        addCandidate(item);
+                    }
+                }
+            }
+        }
+        return candidatecount;
+    }
+
+    /**
+     * Retrieves a candidate from the last query. Candidates
+     * are sorted in the order they were added to the grid.
+     *
+     * @param index Between 0 and the number of candidates found
+     * @return Sprite
+     */
+    @SuppressWarnings("unchecked")
+    public E getCandidate(int index) {
+        return (E) items[candidates[index]];
+    }
+
+    /**
+     * Number of sprites in the grid.
+     *
+     * @return size
+     */
+    public int size() {
+        return itemcount;
+    }
+
+    /**
+     * Adds an item to a cell's list of entries.
+     */
+    private void addEntry(int cell, int item) {
+        if (entries == entrynext.length) {
+            int[] morenext = new int[entrynext.length * 2];
+            System.arraycopy(entrynext, 0, morenext, 0, entries);
+            entrynext = morenext;
+            int[] moreitems = new int[entryitem.length * 2];
+            System.arraycopy(entryitem, 0, moreitems, 0, entries);
+            entryitem = moreitems;
+        }
+        entryitem[entries] = item;
+        entrynext[entries] = cellhead[cell];
+        cellhead[cell] = entries;
+        entries++;
+    }
+
+    /**
+     * Inserts an item among the candidates, keeping them sorted.
+     * There are only a handful of candidates per query, so
+     * an insertion sort is good enough.
+     */
+    private void addCandidate(int item) {
+        if (candidatecount == candidates.length) {
+            int[] more = new int[candidates.length * 2];
+            System.arraycopy(candidates, 0, more, 0, candidatecount);
+            candidates = more;
+        }
+        int i = candidatecount++;
+        while (i > 0 && candidates[i - 1] > item) {
+            candidates[i] = candidates[i - 1];
+            i--;
+        }
+        candidates[i] = item;
+    }
+
+    /**
+     * Column of an x-coordinate, clamped to the grid.
+     */
+    private int column(int x) {
+        int c = x / CELL_SIZE;
+        if (x < 0 || c < 0) {
+            return 0;
+        }
+        return c >= columns ? columns - 1 : c;
+    }
+
+    /**
+     * Row of a y-coordinate, clamped to the grid.
+     */
+    private int row(int y) {
+        int r = y / CELL_SIZE;
+        if (y < 0 || r < 0) {
+            return 0;
+        }
+        return r >= rows ? rows - 1 : r;
+    }
+}
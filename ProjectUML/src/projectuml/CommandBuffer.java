@@ -0,0 +1,212 @@
+package projectuml;
+
+/**
+ * CommandBuffer
+ *
+ * Changes to a level recorded while enemies are updated on another
+ * thread, to be carried out by the thread updating the level once all
+ * enemies are done. Each worker records into its own buffer, and the
+ * buffers are replayed in the order of the enemies they cover, so the
+ * level ends up exactly as if the enemies had been updated one by one.
+ * The level checks for a buffer on the calling thread in each of the
+ * methods enemies call: adding shots and pickables, playing sounds,
+ * and scheduling and cancelling timer events.
+ * A buffer is reused from step to step, and only grows when more is
+ * recorded in a step than ever before.
+ *
+ * @see EnemyUpdater
+ * @see Level
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class CommandBuffer {
+
+    private static final int PLAYER_SHOT = 0;
+    private static final int ENEMY_SHOT = 1;
+    private static final int PICKABLE = 2;
+    private static final int SOUND = 3;
+    private static final int SCHEDULE = 4;
+    private static final int CANCEL = 5;
+    // Numbers recorded for each command
+    private static final int ARGUMENTS = 5;
+    private static ThreadLocal<CommandBuffer> current = new ThreadLocal<CommandBuffer>();
+    private int[] opcodes;
+    private int[] arguments;
+    private Object[] objects;  // Image file, pickable, sound name or event
+    private int count;
+
+    /**
+     * Creates an empty buffer.
+     */
+    public CommandBuffer() {
+        opcodes = new int[64];
+        arguments = new int[64 * ARGUMENTS];
+        objects = new Object[64];
+        count = 0;
+    }
+
+    /**
+     * Retrieves the buffer the current thread records into.
+     *
+     * @return CommandBuffer, or null if changes should be made at once
+     */
+    public static CommandBuffer getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Makes the current thread record into a buffer.
+     *
+     * @param buffer Buffer, or null to make changes at once again
+     */
+    public static void setCurrent(CommandBuffer buffer) {
+        current.set(buffer);
+    }
+
+    /**
+     * Records a shot from the player.
+     *
+     * @param damage
+     * @param dx
+     * @param dy
+     * @param x
+     * @param y
+     * @param imageFile
+     */
+    public void addPlayerShot(int damage, int dx, int dy, int x, int y, String imageFile) {
+        record(PLAYER_SHOT, damage, dx, dy, x, y, imageFile);
+    }
+
+    /**
+     * Records a shot from an enemy.
+     *
+     * @param damage
+     * @param dx
+     * @param dy
+     * @param x
+     * @param y
+     * @param imageFile
+     */
+    public void addEnemyShot(int damage, int dx, int dy, int x, int y, String imageFile) {
+        record(ENEMY_SHOT, damage, dx, dy, x, y, imageFile);
+    }
+
+    /**
+     * Records a pickable.
+     *
+     * @param sprite
+     */
+    public void addPickable(Sprite sprite) {
+        record(PICKABLE, 0, 0, 0, 0, 0, sprite);
+    }
+
+    /**
+     * Records a sound to be played.
+     *
+     * @param keyname
+     */
+    public void playSound(String keyname) {
+        record(SOUND, 0, 0, 0, 0, 0, keyname);
+    }
+
+    /**
+     * Records a timer event to be scheduled.
+     *
+     * @param event
+     * @param millis Game time until it's due
+     */
+    public void schedule(TimerEvent event, long millis) {
+        record(SCHEDULE, (int) (millis >>> 32), (int) millis, 0, 0, 0, event);
+    }
+
+    /**
+     * Records a timer event to be cancelled.
+     *
+     * @param event
+     */
+    public void cancel(TimerEvent event) {
+        record(CANCEL, 0, 0, 0, 0, 0, event);
+    }
+
+    /**
+     * Carries out everything recorded, in the order it was
+     * recorded, and empties the buffer. Must be called on a
+     * thread that isn't recording.
+     *
+     * @param level Level to change
+     */
+    public void replay(Level level) {
+        for (int i = 0; i < count; ++i) {
+            int a = i * ARGUMENTS;
+            switch (opcodes[i]) {
+                case PLAYER_SHOT:
+                    level.addPlayerShot(arguments[a], arguments[a + 1], arguments[a + 2],
+                            arguments[a + 3], arguments[a + 4], (String) objects[i]);
+                    break;
+                case ENEMY_SHOT:
+                    level.addEnemyShot(arguments[a], arguments[a + 1], arguments[a + 2],
+                            arguments[a + 3], arguments[a + 4], (String) objects[i]);
+                    break;
+                case PICKABLE:
+                    level.addPickable((Sprite) objects[i]);
+                    break;
+                case SOUND:
+                    level.playSound((String) objects[i]);
+                    break;
+                case SCHEDULE:
+                    level.schedule((TimerEvent) objects[i],
+                            ((long) arguments[a] << 32) | (arguments[a + 1] & 0xFFFFFFFFL));
+                    break;
+                case CANCEL:
+                    level.cancel((TimerEvent) objects[i]);
+                    break;
+            }
+            objects[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * Empties the buffer without carrying anything out.
+     */
+    public void clear() {
+        for (int i = 0; i < count; ++i) {
+            objects[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * Number of commands recorded.
+     *
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Records a command.
+     */
+    private void record(int opcode, int a0, int a1, int a2, int a3, int a4, Object object) {
+        if (count == opcodes.length) {
+            int[] moreopcodes = new int[count * 2];
+            int[] morearguments = new int[count * 2 * ARGUMENTS];
+            Object[] moreobjects = new Object[count * 2];
+            System.arraycopy(opcodes, 0, moreopcodes, 0, count);
+            System.arraycopy(arguments, 0, morearguments, 0, count * ARGUMENTS);
+            System.arraycopy(objects, 0, moreobjects, 0, count);
+            opcodes = moreopcodes;
+            arguments = morearguments;
+            objects = moreobjects;
+        }
+        int a = count * ARGUMENTS;
+        opcodes[count] = opcode;
+        arguments[a] = a0;
+        arguments[a + 1] = a1;
+        arguments[a + 2] = a2;
+        arguments[a + 3] = a3;
+        arguments[a + 4] = a4;
+        objects[count] = object;
+        count++;
+    }
+}
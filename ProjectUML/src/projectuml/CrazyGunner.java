@@ -5,7 +5,9 @@ package projectuml;
  * 
  * Provides behaviour for how an enemyship fire's it's weapons.
  * This one calls ship's fire method in a random manner based 
- * on time.
+ * on time. Once the ship has been reached, the gunner schedules
+ * a timer event on the level, which fires the ship's weapons and
+ * schedules itself again at a new random time.
  *
  * @see Ship
  * @see Gunner
@@ -13,10 +15,10 @@ package projectuml;
  */
 public class CrazyGunner extends Gunner {
 
+    private static final long serialVersionUID = -7047232747191865064L;
     private int maxTime;
     private int minTime;
-    private int time;
-    private Timestamp timestamp;
+    transient private TimerEvent fireevent;
 
     /**
      * Creates new instance of CrazyGunner
@@ -29,22 +31,56 @@ public class CrazyGunner extends Gunner {
     public CrazyGunner(int minTime, int maxTime) {
         this.maxTime = maxTime;
         this.minTime = minTime;
-        timestamp = new Timestamp();
-        time = Randomizer.getRandomNumber(minTime, maxTime);
     }
 
     /**
      * Overriden update.
-     * If time interval has passed the gunner fires and 
-     * the timer is reset with new random value.
+     * Starts firing, unless the gunner already has.
      * 
      * @param level reference
      */
     public void update(Level level) {
-        if (timestamp.havePassed(time)) {
-            time = Randomizer.getRandomNumber(minTime, maxTime);
-            getShip().fire(level);
-            timestamp.reset();
+        if (!getFireEvent().isScheduled() && !getShip().isDestroyed()) {
+            level.schedule(fireevent, getRandom().getNumber(minTime, maxTime));
         }
     }
+
+    /**
+     * Fires the ship's weapons, and schedules the next
+     * time. A ship that has been destroyed or deactivated
+     * doesn't fire any more.
+     * 
+     * @param level reference
+     */
+    private void fire(Level level) {
+        Ship ship = getShip();
+        if (ship.isActive() && !ship.isDestroyed()) {
+            ship.fire(level);
+            level.schedule(fireevent, getRandom().getNumber(minTime, maxTime));
+        }
+    }
+
+    /**
+     * Stops firing.
+     */
+    public void cancelTimers() {
+        if (fireevent != null) {
+            fireevent.cancel();
+        }
+    }
+
+    /**
+     * The event that fires the weapons.
+     */
+    private TimerEvent getFireEvent() {
+        if (fireevent == null) {
+            fireevent = new TimerEvent() {
+
+                public void fire(Level level) {
+                    CrazyGunner.this.fire(level);
+                }
+            };
+        }
+        return fireevent;
+    }
 }
@@ -26,6 +26,68 @@ public class EnemyFactory extends GeneralFactory<EnemyShip> {
         add("Passive enemy (round ring)", new PassiveEnemyRoundRing());
     }
 
+    /**
+     * Creates an enemy of a certain type, and remembers
+     * the type in the enemy.
+     * 
+     * @param name Name of the enemy type
+     * @return EnemyShip, or null if the type is unknown
+     */
+    public EnemyShip create(String name) {
+        EnemyShip enemy = super.create(name);
+        if (enemy != null) {
+            enemy.setType(name);
+        }
+        return enemy;
+    }
+
+    /**
+     * Finds out which type an enemy is. Enemies saved before
+     * they knew their type are recognized by their image and
+     * weapons.
+     * 
+     * @param enemy
+     * @return Name of the enemy type, or null if it's unknown
+     */
+    public String identify(EnemyShip enemy) {
+        if (enemy.getType() != null && contains(enemy.getType())) {
+            return enemy.getType();
+        }
+
+        // Try them in the same order every time
+        ArrayList<String> names = new ArrayList<String>();
+        for (String name : this) {
+            names.add(name);
+        }
+        Collections.sort(names);
+
+        String signature = signatureOf(enemy);
+        for (String name : names) {
+            EnemyShip candidate = super.create(name);
+            String candidatesignature = signatureOf(candidate);
+            candidate.releaseImage();
+            if (signature.equals(candidatesignature)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Describes an enemy by its image and weapons, which
+     * is what tells the types apart.
+     * 
+     * @param enemy
+     * @return Description
+     */
+    private String signatureOf(EnemyShip enemy) {
+        StringBuilder signature = new StringBuilder(String.valueOf(enemy.getImageFile()));
+        for (Weapon weapon : enemy.getWeaponList()) {
+            signature.append(',').append(weapon.getClass().getName());
+        }
+        return signature.toString();
+    }
+
     /**
      * Factory for creating a type of enemy that doesn't shoot back, in
      * this case a round ring
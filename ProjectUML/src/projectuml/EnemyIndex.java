@@ -0,0 +1,235 @@
+package projectuml;
+
+import java.util.*;
+
+/**
+ * EnemyIndex
+ *
+ * Keeps the enemies of a level apart by how far the level has come:
+ * pending enemies haven't been reached yet, active ones have, and
+ * finished ones have been destroyed and are done exploding. Enemies
+ * are moved between the partitions as the offset changes and as they
+ * finish, so that the level only has to look at the enemies that
+ * matter for what it's doing.
+ * Pending enemies are sorted by offset with the nearest last, so that
+ * reaching them is a matter of taking them off the end.
+ *
+ * @see Level
+ * @see EnemyShip
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public class EnemyIndex {
+
+    private ArrayList<EnemyShip> pending;  // Not reached, farthest first
+    private ArrayList<EnemyShip> active;   // Reached, in the order they were
+    private ArrayList<EnemyShip> finished; // Destroyed and done exploding
+    private int offset;
+
+    /**
+     * Creates an empty index at offset 0.
+     */
+    public EnemyIndex() {
+        pending = new ArrayList<EnemyShip>();
+        active = new ArrayList<EnemyShip>();
+        finished = new ArrayList<EnemyShip>();
+        offset = 0;
+    }
+
+    /**
+     * Adds an enemy. It's active at once if the offset has
+     * already reached it.
+     *
+     * @param ship
+     */
+    public void add(EnemyShip ship) {
+        if (offset >= ship.getOffset()) {
+            active.add(ship);
+        } else {
+            addPending(ship);
+        }
+    }
+
+    /**
+     * Adds an enemy straight to the finished ones.
+     *
+     * @param ship
+     */
+    public void addFinished(EnemyShip ship) {
+        finished.add(ship);
+    }
+
+    /**
+     * Removes an enemy, wherever it is.
+     *
+     * @param ship
+     * @return True if it was in the index
+     */
+    public boolean remove(EnemyShip ship) {
+        return active.remove(ship) || finished.remove(ship) || pending.remove(ship);
+    }
+
+    /**
+     * Moves enemies between the partitions as the level moves
+     * to another offset. Moving forward only looks at the nearest
+     * pending enemies. Moving back, which only the level editor
+     * does, looks at every enemy that has been reached.
+     *
+     * @param offset New offset
+     */
+    public void setOffset(int offset) {
+        if (offset < this.offset) {
+            unreach(active, offset);
+            unreach(finished, offset);
+        }
+        this.offset = offset;
+        while (!pending.isEmpty() && offset >= pending.get(pending.size() - 1).getOffset()) {
+            active.add(pending.remove(pending.size() - 1));
+        }
+    }
+
+    /**
+     * Puts an enemy in the right place after its offset
+     * has been changed.
+     *
+     * @param ship
+     */
+    public void reposition(EnemyShip ship) {
+        if (remove(ship)) {
+            if (ship.isDestroyed() && ship.getDestructAnimation().isDone() &&
+                    offset >= ship.getOffset()) {
+                finished.add(ship);
+            } else {
+                add(ship);
+            }
+        }
+    }
+
+    /**
+     * Moves an active enemy to the finished ones.
+     *
+     * @param index Index among the active enemies
+     * @param keep False to let go of it instead
+     * @return The enemy
+     */
+    public EnemyShip finish(int index, boolean keep) {
+        EnemyShip ship = active.remove(index);
+        if (keep) {
+            finished.add(ship);
+        }
+        return ship;
+    }
+
+    /**
+     * Enemies that have been reached and aren't finished. Must
+     * not be changed, other than through the index.
+     *
+     * @return Active enemies
+     */
+    public List<EnemyShip> getActive() {
+        return active;
+    }
+
+    /**
+     * Enemies that are destroyed and done exploding. Must
+     * not be changed, other than through the index.
+     *
+     * @return Finished enemies
+     */
+    public List<EnemyShip> getFinished() {
+        return finished;
+    }
+
+    /**
+     * Number of enemies not yet reached.
+     *
+     * @return Number of enemies
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Number of enemies reached and not finished.
+     *
+     * @return Number of enemies
+     */
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * Number of finished enemies.
+     *
+     * @return Number of enemies
+     */
+    public int getFinishedCount() {
+        return finished.size();
+    }
+
+    /**
+     * Number of enemies in the index.
+     *
+     * @return Number of enemies
+     */
+    public int size() {
+        return pending.size() + active.size() + finished.size();
+    }
+
+    /**
+     * Retrieves any enemy in the index: the finished ones
+     * first, then the active ones, then the pending ones.
+     *
+     * @param index Between 0 and size()
+     * @return EnemyShip
+     */
+    public EnemyShip get(int index) {
+        if (index < finished.size()) {
+            return finished.get(index);
+        }
+        index -= finished.size();
+        if (index < active.size()) {
+            return active.get(index);
+        }
+        return pending.get(index - active.size());
+    }
+
+    /**
+     * Removes every enemy.
+     */
+    public void clear() {
+        pending.clear();
+        active.clear();
+        finished.clear();
+    }
+
+    /**
+     * Adds an enemy to the pending ones, keeping them sorted.
+     * Enemies with the same offset become active in the order
+     * they were added.
+     */
+    private void addPending(EnemyShip ship) {
+        int low = 0;
+        int high = pending.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pending.get(middle).getOffset() > ship.getOffset()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        pending.add(low, ship);
+    }
+
+    /**
+     * Moves the enemies that haven't been reached at
+     * a certain offset back to the pending ones.
+     */
+    private void unreach(ArrayList<EnemyShip> ships, int offset) {
+        for (int i = ships.size() - 1; i >= 0; --i) {
+            if (ships.get(i).getOffset() > offset) {
+                addPending(ships.remove(i));
+            }
+        }
+    }
+}
@@ -9,22 +9,27 @@ import java.util.*;
  *
  * This is a ship that moves by itself. The movement is controlled by
  * a path object and firing is controlled by a gunner object.
+ * The ship moves a fixed distance along its path every update.
  *
  * @see Ship
  * @see Gunner
  * @see Path.java
+ * @see PathTrack
  * @author Steve Eriksson, Jens Thuresson
  */
 public class EnemyShip extends Ship {
 
+    // Same as before the type was added, so that old levels still load
+    private static final long serialVersionUID = 2611488273939957453L;
     private final int SPEED = 3;  // Maximum speed
     private Timestamp time;       // Used to check if given time period has passed
     private ArrayList<Point> weaponMounts; // List of positions where weapons are attached
     private int offset;           // Where enemy should appear in the level
-    private Point nextPosition;   // Next point to get to
     private Path path;            // Path to follow
-    private Navigator navigator;  // Movement behaviour
+    transient private PathTrack track; // How far along the path we are
     private Gunner gunner;        // Firing behaviour
+    private String type;          // Name of the type in EnemyFactory, if known
+    transient private RandomSource random; // Source of the ship's random numbers
 
     /**
      * Create EnemyShip
@@ -43,11 +48,10 @@ public class EnemyShip extends Ship {
         }
 
         this.path = path;
-        nextPosition = path.next();
 
         // Check if the path contains positions
-        if (nextPosition == null) {
-            System.err.println("nextPosition == null");
+        if (path.getPointCount() == 0) {
+            System.err.println("Path is empty");
             return;
         }
 
@@ -60,10 +64,9 @@ public class EnemyShip extends Ship {
 
         // Set ship's starting position to be the first in 
         // the supplied path
-        setPosition(nextPosition);
-        navigator = new SimpleLineFollower(nextPosition);
-        navigator.setMaxMovement(SPEED);
-        setImage(loadImage(imageFile));
+        setPosition(path.getPoint(0));
+        track = new PathTrack(path, getIntPositionX(), getIntPositionY());
+        loadImageFrom(imageFile);
 
         // Set ship's health
         increaseHealth(health);
@@ -89,12 +92,10 @@ public class EnemyShip extends Ship {
      */
     public void update(Level level) {
         if (isActive()) {
-            // If ship is at nextPosition, get new destination from path
-            if (getPosition().equals(nextPosition)) {
-                nextPosition = path.next();
-
+            // Update new position if ship isn't destroyed
+            if (!isDestroyed()) {
                 // If ship is at the end of the path it should disappear
-                if (nextPosition == null) {
+                if (!track.advance(SPEED)) {
                     // Mark it as destroyed
                     setDestroyed(); 
                     // Make sure animation isn't shown
@@ -103,22 +104,15 @@ public class EnemyShip extends Ship {
                     deactivate();
                     hide();
                     return;
-                // Otherwise, update navigator calculator with new destination
-                } else {
-                    navigator.newDestination(nextPosition);
                 }
-            }
-
-            // Update new position if ship isn't destroyed
-            if (!isDestroyed()) {
-                setPosition(navigator.getNextPosition(getPosition()));
+                setPosition(Math.round(track.getX()), Math.round(track.getY()));
 
             // Ship is destroyed. Chances are that it will leave
             // a powerup behind.
             } else if (getDestructAnimation().isDone()) {
-                if (Randomizer.getRandomNumber(0, 10) < 6) {
+                if (getRandom().getNumber(0, 10) < 6) {
                     PowerUpFactory powerups = new PowerUpFactory();
-                    PowerUp powerup = powerups.createRandom();
+                    PowerUp powerup = powerups.createRandom(getRandom());
                     powerup.setPosition(getPosition());
                     level.addPickable(powerup);
                 }
@@ -141,12 +135,17 @@ public class EnemyShip extends Ship {
     }
 
     /**
-     * Set path to use.
+     * Set path to use. The ship starts over from
+     * the beginning of the path, moving there from
+     * where it is now.
      *
      * @param path to follow
      */
     public void setPath(Path path) {
         this.path = path;
+        if (path != null && track != null) {
+            track = new PathTrack(path, getIntPositionX(), getIntPositionY());
+        }
     }
 
     /**
@@ -176,6 +175,25 @@ public class EnemyShip extends Ship {
         this.offset = offset;
     }
 
+    /**
+     * Get the name of the enemy type, as known by the
+     * EnemyFactory.
+     *
+     * @return Type name, or null if unknown
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Set the name of the enemy type.
+     *
+     * @param type Type name from the EnemyFactory
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
     /**
      * Set ships gunner object, this changes the way
      * the enemy fires it's weapons.
@@ -184,12 +202,48 @@ public class EnemyShip extends Ship {
      */
     public void setGunner(Gunner gunner) {
         this.gunner = gunner;
+        gunner.setRandom(random);
+    }
+
+    /**
+     * Cancels the timer events of the ship and its gunner.
+     */
+    public void cancelTimers() {
+        super.cancelTimers();
+        if (gunner != null) {
+            gunner.cancelTimers();
+        }
+    }
+
+    /**
+     * Get the source of the ship's random numbers, shared
+     * with its gunner. A ship that hasn't been given one
+     * gets one of its own.
+     * 
+     * @return RandomSource
+     */
+    public RandomSource getRandom() {
+        if (random == null) {
+            setRandom(new RandomSource());
+        }
+        return random;
+    }
+
+    /**
+     * Set the source of the ship's random numbers. The level
+     * gives each ship a source split off from its own.
+     * 
+     * @param random
+     */
+    public void setRandom(RandomSource random) {
+        this.random = random;
+        if (gunner != null) {
+            gunner.setRandom(random);
+        }
     }
     
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        nextPosition = path.next();
-        navigator = new SimpleLineFollower(nextPosition);
-        navigator.setMaxMovement(SPEED);
+        track = new PathTrack(path, getIntPositionX(), getIntPositionY());
     }
 }
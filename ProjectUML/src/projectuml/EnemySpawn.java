@@ -0,0 +1,201 @@
+package projectuml;
+
+import java.awt.Point;
+
+/**
+ * EnemySpawn
+ *
+ * Everything needed to create an enemy once the level has come far
+ * enough: its type, when and where it appears, its health and the path
+ * it follows. A spawn is only a few numbers, so a level can hold any
+ * number of them without loading a single image. The enemy itself is
+ * created by the EnemyFactory shortly before it's needed.
+ *
+ * @see Level
+ * @see EnemyFactory
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public class EnemySpawn {
+
+    private String type;
+    private int offset;
+    private int health;
+    private int maxhealth;
+    private int x;
+    private int y;
+    private boolean cyclic;
+    private int[] pathx;
+    private int[] pathy;
+    private Path.Kind[] pathkinds;
+
+    /**
+     * Creates a spawn.
+     *
+     * @param type Name of the enemy type, as known by the EnemyFactory
+     * @param offset Offset the enemy appears at
+     * @param health
+     * @param maxhealth
+     * @param x Where the enemy appears
+     * @param y
+     * @param cyclic True if the path is cyclic
+     * @param pathx Points of the path
+     * @param pathy
+     * @param pathkinds Kind of each point
+     */
+    public EnemySpawn(String type, int offset, int health, int maxhealth, int x, int y,
+            boolean cyclic, int[] pathx, int[] pathy, Path.Kind[] pathkinds) {
+        this.type = type;
+        this.offset = offset;
+        this.health = health;
+        this.maxhealth = maxhealth;
+        this.x = x;
+        this.y = y;
+        this.cyclic = cyclic;
+        this.pathx = pathx;
+        this.pathy = pathy;
+        this.pathkinds = pathkinds;
+    }
+
+    /**
+     * Describes an enemy as it is now, so that it can be
+     * saved like any other spawn.
+     *
+     * @param type Name of the enemy type, or null if it's unknown
+     * @param ship
+     * @return EnemySpawn
+     */
+    public static EnemySpawn describe(String type, EnemyShip ship) {
+        Path path = ship.getPath();
+        int points = path.getPointCount();
+        int[] pathx = new int[points];
+        int[] pathy = new int[points];
+        Path.Kind[] pathkinds = new Path.Kind[points];
+        for (int i = 0; i < points; ++i) {
+            Point point = path.getPoint(i);
+            pathx[i] = point.x;
+            pathy[i] = point.y;
+            pathkinds[i] = path.getKind(i);
+        }
+        return new EnemySpawn(type, ship.getOffset(), ship.getHealth(), ship.getMaxHealth(),
+                ship.getIntPositionX(), ship.getIntPositionY(), path.isCyclic(),
+                pathx, pathy, pathkinds);
+    }
+
+    /**
+     * Creates the enemy, and puts it in place.
+     *
+     * @param factory Factory to create it with
+     * @return EnemyShip, or null if the type is unknown
+     */
+    public EnemyShip materialize(EnemyFactory factory) {
+        EnemyShip ship = factory.create(type);
+        if (ship == null) {
+            return null;
+        }
+        ship.setOffset(offset);
+        // There's no way to set the max health directly,
+        // but raising the health raises it as well
+        ship.increaseHealth(maxhealth - ship.getHealth());
+        ship.setHealth(health);
+
+        Path path = new Path(cyclic);
+        for (int i = 0; i < pathx.length; ++i) {
+            path.addPoint(new Point(pathx[i], pathy[i]), pathkinds[i]);
+        }
+        ship.setPosition(x, y);
+        ship.setPath(path);
+        return ship;
+    }
+
+    /**
+     * Name of the enemy type.
+     *
+     * @return type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Offset the enemy appears at.
+     *
+     * @return offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Health the enemy starts with.
+     *
+     * @return health
+     */
+    public int getHealth() {
+        return health;
+    }
+
+    /**
+     * Max health of the enemy.
+     *
+     * @return maxhealth
+     */
+    public int getMaxHealth() {
+        return maxhealth;
+    }
+
+    /**
+     * Where the enemy appears.
+     *
+     * @return x
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Where the enemy appears.
+     *
+     * @return y
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Check if the path is cyclic.
+     *
+     * @return True if it is
+     */
+    public boolean isCyclic() {
+        return cyclic;
+    }
+
+    /**
+     * Number of points in the path.
+     *
+     * @return Number of points
+     */
+    public int getPointCount() {
+        return pathx.length;
+    }
+
+    /**
+     * Retrieves a point of the path.
+     *
+     * @param index
+     * @return Point
+     */
+    public Point getPoint(int index) {
+        return new Point(pathx[index], pathy[index]);
+    }
+
+    /**
+     * Kind of a point of the path.
+     *
+     * @param index
+     * @return Kind
+     */
+    public Path.Kind getKind(int index) {
+        return pathkinds[index];
+    }
+}
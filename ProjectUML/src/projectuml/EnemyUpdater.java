@@ -0,0 +1,166 @@
+package projectuml;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * EnemyUpdater
+ *
+ * Updates the active enemies of a level, either one by one on the
+ * calling thread, or split into a number of contiguous parts updated
+ * on a pool of worker threads. Workers don't change the level directly,
+ * they record into a CommandBuffer each, and the buffers are replayed
+ * on the calling thread, first part first, once every part is done.
+ * If any part fails, nothing is replayed. The calling thread always
+ * waits for every part to finish, even when it's interrupted, so
+ * the buffers are never touched while a worker records into them.
+ * Every enemy draws its random numbers from a RandomSource of its own.
+ * The outcome of a step is therefore the same however many threads
+ * there are, and the same as when the enemies are updated one by one.
+ * Small numbers of enemies are always updated on the calling thread,
+ * as handing them to the workers would take longer than updating them.
+ *
+ * @see Level
+ * @see CommandBuffer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class EnemyUpdater {
+
+    // Fewer active enemies than this are updated on the calling thread
+    private static final int PARALLEL_THRESHOLD = 64;
+    private ExecutorService workers;
+    private ArrayList<Part> parts;
+    private ArrayList<Future<Object>> results;
+
+    /**
+     * A contiguous part of the active enemies, and the
+     * buffer its worker records into.
+     */
+    private static class Part implements Callable<Object> {
+
+        private Level level;
+        private List<EnemyShip> enemies;
+        private int from;
+        private int to;
+        private CommandBuffer buffer = new CommandBuffer();
+
+        public Object call() {
+            CommandBuffer.setCurrent(buffer);
+            try {
+                for (int i = from; i < to; ++i) {
+                    enemies.get(i).update(level);
+                }
+            } finally {
+                CommandBuffer.setCurrent(null);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Creates an updater.
+     *
+     * @param threads Number of worker threads, 0 to update
+     *        every enemy on the calling thread
+     */
+    public EnemyUpdater(int threads) {
+        parts = new ArrayList<Part>();
+        results = new ArrayList<Future<Object>>();
+        if (threads > 0) {
+            workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "EnemyUpdater");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            for (int i = 0; i < threads; ++i) {
+                parts.add(new Part());
+            }
+        }
+    }
+
+    /**
+     * Updates the enemies.
+     *
+     * @param level Level the enemies are in
+     * @param enemies Active enemies
+     */
+    public void update(Level level, List<EnemyShip> enemies) {
+        int count = enemies.size();
+        if (workers == null || count < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < count; ++i) {
+                enemies.get(i).update(level);
+            }
+            return;
+        }
+
+        int size = (count + parts.size() - 1) / parts.size();
+        for (int p = 0; p < parts.size(); ++p) {
+            Part part = parts.get(p);
+            part.level = level;
+            part.enemies = enemies;
+            part.from = Math.min(count, p * size);
+            part.to = Math.min(count, part.from + size);
+        }
+        for (Part part : parts) {
+            results.add(workers.submit(part));
+        }
+        // The parts aren't cancelled when we're interrupted,
+        // we wait for them all the same and tell afterwards
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (Future<Object> result : results) {
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        results.clear();
+        for (Part part : parts) {
+            if (failure == null) {
+                part.buffer.replay(level);
+            } else {
+                part.buffer.clear();
+            }
+            part.level = null;
+            part.enemies = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new RuntimeException("Enemy update failed", failure);
+        }
+    }
+
+    /**
+     * Number of worker threads.
+     *
+     * @return threads, 0 if there are none
+     */
+    public int getThreadCount() {
+        return workers != null ? parts.size() : 0;
+    }
+
+    /**
+     * Stops the worker threads. The updater can still be
+     * used, but updates every enemy on the calling thread.
+     */
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package projectuml;
+
+import java.util.*;
+
+/**
+ * EntityList
+ *
+ * An unordered list of sprites used by the level to hold its
+ * short lived objects, such as shots and pickables.
+ * Removing an entity is done in constant time by moving the last
+ * entity into its slot, which means the order of the list isn't
+ * kept. Entities that are both inactive and invisible are
+ * considered dead, and are removed in bulk by reap().
+ *
+ * @see Level
+ * @author Jens Thuresson, Steve Eriksson
+ * @param <E> Type of sprite to hold
+ */
+public class EntityList<E extends Sprite> implements Iterable<E> {
+
+    private Object[] entities;
+    private int size;
+    private long reaped; // Total number of entities reaped
+
+    /**
+     * Receives the entities removed by reap().
+     *
+     * @param <E> Type of sprite
+     */
+    public interface ReapListener<E> {
+
+        public abstract void reaped(E entity);
+    }
+
+    /**
+     * Creates an empty list.
+     */
+    public EntityList() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty list with room for a certain
+     * number of entities.
+     *
+     * @param capacity Initial capacity
+     */
+    public EntityList(int capacity) {
+        entities = new Object[Math.max(capacity, 1)];
+        size = 0;
+        reaped = 0;
+    }
+
+    /**
+     * Adds an entity to the list.
+     *
+     * @param entity
+     */
+    public void add(E entity) {
+        if (size == entities.length) {
+            Object[] larger = new Object[entities.length * 2];
+            System.arraycopy(entities, 0, larger, 0, size);
+            entities = larger;
+        }
+        entities[size++] = entity;
+    }
+
+    /**
+     * Retrieves the entity at a certain index.
+     *
+     * @param index
+     * @return Entity
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return (E) entities[index];
+    }
+
+    /**
+     * Removes the entity at a certain index by moving
+     * the last entity into its place.
+     *
+     * @param index
+     * @return The removed entity
+     */
+    public E removeAt(int index) {
+        E removed = get(index);
+        size--;
+        entities[index] = entities[size];
+        entities[size] = null;
+        return removed;
+    }
+
+    /**
+     * Number of entities in the list, dead or alive.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the list is empty.
+     *
+     * @return True if there are no entities
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Removes all dead entities, that is entities that are
+     * both inactive and invisible.
+     *
+     * @return Number of entities removed
+     */
+    public int reap() {
+        return reap(null);
+    }
+
+    /**
+     * Removes all dead entities, and hands each one of them
+     * over to a listener.
+     *
+     * @param listener Receiver of the removed entities, or null
+     * @return Number of entities removed
+     */
+    public int reap(ReapListener<? super E> listener) {
+        int removed = 0;
+        int i = 0;
+        while (i < size) {
+            if (isDead(get(i))) {
+                // Don't advance, since the last
+                // entity now occupies this slot
+                E entity = removeAt(i);
+                if (listener != null) {
+                    listener.reaped(entity);
+                }
+                removed++;
+            } else {
+                i++;
+            }
+        }
+        reaped += removed;
+        return removed;
+    }
+
+    /**
+     * Counts the entities that are dead but not reaped yet.
+     *
+     * @return Number of dead entities
+     */
+    public int getDeadCount() {
+        int dead = 0;
+        for (int i = 0; i < size; ++i) {
+            if (isDead(get(i))) {
+                dead++;
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * Counts the entities that are still alive.
+     *
+     * @return Number of live entities
+     */
+    public int getLiveCount() {
+        return size - getDeadCount();
+    }
+
+    /**
+     * Total number of entities removed by reap().
+     *
+     * @return reaped
+     */
+    public long getReapedCount() {
+        return reaped;
+    }
+
+    /**
+     * Checks if an entity can be reaped.
+     *
+     * @param entity
+     * @return True if it's both inactive and invisible
+     */
+    private boolean isDead(E entity) {
+        return !entity.isActive() && !entity.isVisible();
+    }
+
+    /**
+     * Iterates over all entities, dead or alive. The list
+     * may not be modified while iterating.
+     *
+     * @return Iterator
+     */
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private int index = 0;
+
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
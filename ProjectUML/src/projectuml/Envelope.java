@@ -0,0 +1,158 @@
+package projectuml;
+
+/**
+ * Envelope
+ *
+ * Ramps a value, such as the volume of a sound, from one level to
+ * another over a certain number of sample frames. The shape of the
+ * ramp is given by a curve. Envelopes are advanced by the SoundMixer
+ * as it mixes, so every fade in the game runs off the same clock.
+ *
+ * @see SoundMixer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class Envelope {
+
+    // Volumes below this are considered silent, in decibels
+    private static final float SILENCE_DB = -80f;
+    private float from;
+    private float to;
+    private int length;
+    private int elapsed;
+    private Curve curve;
+    private boolean stopatend;
+
+    /**
+     * Shape of a ramp.
+     */
+    public interface Curve {
+
+        /**
+         * Calculates a value along the ramp.
+         *
+         * @param from Value at the start
+         * @param to Value at the end
+         * @param t How far along the ramp, from 0.0 to 1.0
+         * @return Value
+         */
+        public abstract float value(float from, float to, float t);
+    }
+
+    /**
+     * Straight line from start to end.
+     */
+    public static final Curve LINEAR = new Curve() {
+
+        public float value(float from, float to, float t) {
+            return from + (to - from) * t;
+        }
+    };
+
+    /**
+     * Starts and ends slowly.
+     */
+    public static final Curve SMOOTH = new Curve() {
+
+        public float value(float from, float to, float t) {
+            return from + (to - from) * t * t * (3 - 2 * t);
+        }
+    };
+
+    /**
+     * Keeps the total power constant when one sound is faded
+     * out while another is faded in with the same curve.
+     */
+    public static final Curve EQUAL_POWER = new Curve() {
+
+        public float value(float from, float to, float t) {
+            double angle = t * Math.PI / 2;
+            if (to >= from) {
+                return from + (to - from) * (float) Math.sin(angle);
+            } else {
+                return to + (from - to) * (float) Math.cos(angle);
+            }
+        }
+    };
+
+    /**
+     * Straight line in decibels, which is how a fade is heard.
+     */
+    public static final Curve DECIBEL = new Curve() {
+
+        public float value(float from, float to, float t) {
+            float db = toDecibel(from) + (toDecibel(to) - toDecibel(from)) * t;
+            return (float) Math.pow(10, db / 20);
+        }
+    };
+
+    /**
+     * Creates an envelope.
+     *
+     * @param from Value at the start
+     * @param to Value at the end
+     * @param length Length in sample frames
+     * @param curve Shape of the ramp
+     * @param stopatend True if the sound should be stopped at the end
+     */
+    public Envelope(float from, float to, int length, Curve curve, boolean stopatend) {
+        this.from = from;
+        this.to = to;
+        this.length = Math.max(0, length);
+        this.curve = curve;
+        this.stopatend = stopatend;
+        elapsed = 0;
+    }
+
+    /**
+     * Moves along the ramp.
+     *
+     * @param frames Number of sample frames passed
+     * @return Value afterwards
+     */
+    public float advance(int frames) {
+        elapsed = Math.min(length, elapsed + frames);
+        return getValue();
+    }
+
+    /**
+     * Current value of the ramp.
+     *
+     * @return Value
+     */
+    public float getValue() {
+        if (isFinished()) {
+            // Exactly where we're going, whatever the curve
+            return to;
+        }
+        return curve.value(from, to, elapsed / (float) length);
+    }
+
+    /**
+     * Checks if the end of the ramp has been reached.
+     *
+     * @return True if it has
+     */
+    public boolean isFinished() {
+        return elapsed >= length;
+    }
+
+    /**
+     * Checks if the sound should be stopped when the
+     * end of the ramp is reached.
+     *
+     * @return True if it should
+     */
+    public boolean stopsAtEnd() {
+        return stopatend;
+    }
+
+    /**
+     * Converts a volume to decibels.
+     */
+    private static float toDecibel(float gain) {
+        if (gain <= 0f) {
+            return SILENCE_DB;
+        }
+        return Math.max(SILENCE_DB, (float) (20 * Math.log10(gain)));
+    }
+}
@@ -0,0 +1,149 @@
+package projectuml;
+
+/**
+ * GameClock
+ *
+ * The time the game runs on. It doesn't follow the wall clock, but
+ * is moved along by the GameLoop, one TICK_MILLIS for every logic
+ * step it takes. Since the loop paces its steps by System.nanoTime(),
+ * the clock keeps up with real time while the game runs smoothly,
+ * never jumps when the wall clock is changed, and stands still when
+ * steps are skipped.
+ * The clock can be paused, which the Pause screen does while it's on
+ * top, and it can run slower or faster than the steps by a scale.
+ * Every Timestamp reads its time from here, so checking a timestamp
+ * is a matter of reading a field. The HeadlessRunner moves the clock
+ * itself, as fast as it takes its steps.
+ * Only one thread, the one taking the logic steps, should move the
+ * clock. Any thread can read it.
+ *
+ * @see GameLoop
+ * @see Timestamp
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class GameClock {
+
+    private static GameClock instance = new GameClock();
+    private volatile long nanos;   // Time passed, in nanoseconds
+    private volatile long millis;  // The same, in milliseconds
+    private volatile boolean paused;
+    private volatile float scale;
+    private double remainder;      // Scaled time too short to count yet
+
+    /**
+     * Creates a clock at time 0.
+     */
+    public GameClock() {
+        scale = 1.0f;
+        reset();
+    }
+
+    /**
+     * Retrieves the clock the game runs on.
+     *
+     * @return GameClock
+     */
+    public static GameClock getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the clock the game runs on.
+     *
+     * @param clock
+     */
+    public static void setInstance(GameClock clock) {
+        instance = clock;
+    }
+
+    /**
+     * Moves the clock along by one logic step.
+     */
+    public void tick() {
+        advance(GameLoop.TICK_MILLIS * 1000000L);
+    }
+
+    /**
+     * Moves the clock along, unless it's paused. The
+     * time is scaled before it's added.
+     *
+     * @param step Time in nanoseconds
+     */
+    public void advance(long step) {
+        if (paused || step <= 0) {
+            return;
+        }
+        if (scale != 1.0f) {
+            double scaled = step * (double) scale + remainder;
+            step = (long) scaled;
+            remainder = scaled - step;
+        }
+        long time = nanos + step;
+        nanos = time;
+        millis = time / 1000000L;
+    }
+
+    /**
+     * Sets the clock back to time 0.
+     */
+    public void reset() {
+        nanos = 0;
+        millis = 0;
+        remainder = 0;
+    }
+
+    /**
+     * Time passed on the clock.
+     *
+     * @return Time in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Time passed on the clock.
+     *
+     * @return Time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Pauses or restarts the clock.
+     *
+     * @param paused True to stop the clock
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Check if the clock is paused.
+     *
+     * @return True if it is
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Sets how fast the clock runs compared to the logic
+     * steps, e.g. 0.5 for slow motion or 2.0 to fast-forward.
+     *
+     * @param scale Factor, 1.0 for normal speed
+     */
+    public void setScale(float scale) {
+        this.scale = Math.max(0.0f, scale);
+    }
+
+    /**
+     * How fast the clock runs compared to the logic steps.
+     *
+     * @return Factor, 1.0 for normal speed
+     */
+    public float getScale() {
+        return scale;
+    }
+}
@@ -0,0 +1,215 @@
+package projectuml;
+
+/**
+ * GameLoop
+ *
+ * Drives the whole game. The game logic is updated in fixed steps of
+ * TICK_MILLIS, no matter how fast or slow the frames are rendered.
+ * Time that has passed but isn't yet enough for a whole step is
+ * carried over, and the renderer gets to know how far we've come
+ * towards the next step as an interpolation factor.
+ * If we fall too far behind (e.g. the machine is too slow, or the
+ * process was suspended) we only catch up a limited number of steps
+ * and skip the rest, instead of trying to catch up forever.
+ * Rendering runs in a thread of its own. The running game hands
+ * over complete frames to it without locking (see SnapshotBuffer),
+ * so a slow frame never holds up the logic and vice versa.
+ * Every step moves the GameClock along by TICK_MILLIS, so skipped
+ * steps don't count as time passed in the game.
+ *
+ * @see MainGame
+ * @see GameWindow
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class GameLoop implements Runnable {
+
+    // Length of a logic step in milliseconds
+    public static final long TICK_MILLIS = 34;
+    private final long TICK_NANOS = TICK_MILLIS * 1000000L;
+    // Time between two rendered frames
+    private final long RENDER_NANOS = 16 * 1000000L;
+    // Max number of logic steps to catch up in one frame
+    private final int MAX_CATCHUP_TICKS = 5;
+    private GameStates gamestates;
+    private Player player;
+    private GameWindow window;
+    private Thread thread;
+    private Thread renderthread;
+    private volatile boolean running;
+    private volatile long lasttick;     // When the latest step was due, in nanoseconds
+    private volatile long ticks;        // Logic steps taken
+    private volatile long skippedticks; // Logic steps skipped when too far behind
+    private volatile float interpolation;
+
+    /**
+     * Creates the game loop.
+     *
+     * @param gamestates States to update
+     * @param player Player playing the game
+     * @param window Window to render to
+     */
+    public GameLoop(GameStates gamestates, Player player, GameWindow window) {
+        this.gamestates = gamestates;
+        this.player = player;
+        this.window = window;
+        running = false;
+        ticks = 0;
+        skippedticks = 0;
+        interpolation = 0f;
+    }
+
+    /**
+     * Starts the loop, and the renderer, in threads of their own.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            running = true;
+            lasttick = System.nanoTime();
+            thread = new Thread(this, "Game loop");
+            thread.start();
+            renderthread = new Thread(new RenderLoop(), "Render loop");
+            renderthread.start();
+        }
+    }
+
+    /**
+     * Stops the loop, and waits for it to finish
+     * the frame it's working on.
+     */
+    public void stop() {
+        Thread old;
+        Thread oldrender;
+        synchronized (this) {
+            running = false;
+            old = thread;
+            oldrender = renderthread;
+            thread = null;
+            renderthread = null;
+        }
+        join(old);
+        join(oldrender);
+    }
+
+    /**
+     * Waits for a thread to finish.
+     *
+     * @param t Thread to wait for, or null
+     */
+    private void join(Thread t) {
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The logic loop.
+     */
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            // Update the logic in fixed steps
+            int steps = 0;
+            while (accumulator >= TICK_NANOS && steps < MAX_CATCHUP_TICKS) {
+                tick();
+                accumulator -= TICK_NANOS;
+                steps++;
+            }
+
+            // Still behind? Forget about it, otherwise we'll
+            // spend even more time catching up next time
+            if (accumulator >= TICK_NANOS) {
+                skippedticks += accumulator / TICK_NANOS;
+                accumulator %= TICK_NANOS;
+            }
+            lasttick = now - accumulator;
+
+            // Sleep until the next step is due
+            sleep(TICK_NANOS - accumulator - (System.nanoTime() - now));
+        }
+    }
+
+    /**
+     * Renders frames at a steady pace, independent of the logic.
+     */
+    private class RenderLoop implements Runnable {
+
+        public void run() {
+            while (running) {
+                long framestart = System.nanoTime();
+
+                // How far we've come towards the next step
+                float alpha = (framestart - lasttick) / (float) TICK_NANOS;
+                interpolation = Math.max(0f, Math.min(1f, alpha));
+                window.render(interpolation);
+
+                // Sleep until it's time for the next frame
+                sleep(RENDER_NANOS - (System.nanoTime() - framestart));
+            }
+        }
+    }
+
+    /**
+     * Takes a single logic step.
+     */
+    private void tick() {
+        GameClock.getInstance().tick();
+        gamestates.update(player);
+        ticks++;
+    }
+
+    /**
+     * Sleeps a while, unless it's too short to bother.
+     *
+     * @param nanos Time to sleep in nanoseconds
+     */
+    private void sleep(long nanos) {
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+            } catch (InterruptedException ex) {
+                running = false;
+            }
+        } else {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Number of logic steps taken since the start.
+     *
+     * @return ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Number of logic steps skipped because we
+     * fell too far behind.
+     *
+     * @return Skipped ticks
+     */
+    public long getSkippedTicks() {
+        return skippedticks;
+    }
+
+    /**
+     * How far we've come between the last logic step and
+     * the next, when the last frame was rendered.
+     *
+     * @return Value between 0.0 and 1.0
+     */
+    public float getInterpolation() {
+        return interpolation;
+    }
+}
@@ -30,7 +30,7 @@ public class GameOver extends GameState {
         scenery = new StarField(200);
 
         // Sound
-        sound = new SoundPlayer();
+        sound = SoundPlayer.create(null);
         sound.loadSound("gameover.wav");
         sound.play("gameover");
     }
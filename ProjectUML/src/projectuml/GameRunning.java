@@ -15,9 +15,10 @@ import java.awt.event.*;
  */
 public class GameRunning extends GameState {
     // Time value in milliseconds for an offset
-    private final long OFFSET_PERIOD = 1000;
-    private GeneralSerializer<Level> levelloader;
-    private Level currentlevel;
+    public static final long OFFSET_PERIOD = 1000;
+    private LevelLoader levelloader;
+    private LevelPreloader preloader; // Loads the next level while this one's played
+    private volatile Level currentlevel;
     private Stack<String> levelnames;
     private PlayerShip playership;
     private Font font;
@@ -32,8 +33,8 @@ public class GameRunning extends GameState {
         EXIT
     };
     private Hashtable<Integer, GameCommandID> keys;
-    private Timer timer;
-    private boolean active;
+    private long offsettime; // Time played since the offset was last increased
+    private SnapshotBuffer snapshots; // Frames handed over to the renderer
 
     /**
      * Creates the game and associates it with
@@ -43,19 +44,16 @@ public class GameRunning extends GameState {
      **/
     public GameRunning() {
         // Load a level
-        levelloader = new GeneralSerializer<Level>();
+        levelloader = new LevelLoader();
+        preloader = new LevelPreloader();
         levelnames = new Stack<String>();
+        snapshots = new SnapshotBuffer();
         initLevelList();
         loadNextLevel();
 
         // Get a font
         font = new Font("Courier New", Font.PLAIN, 10);
 
-        // Create our timer
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new OffsetTask(), 0, OFFSET_PERIOD);
-        active = true;
-
         keys = new Hashtable<Integer, GameCommandID>();
         bindKeys();
     }
@@ -90,15 +88,17 @@ public class GameRunning extends GameState {
         }
 
         if (currentlevel != null) {
+            advanceOffset();
             currentlevel.update(playership);
             playership.update(currentlevel);
         }
         restrictPlayerShip();
+        publishSnapshot();
 
         // Show game over-screen if we're dead and
         // destruction animation finished
         if (player.getLives() <= 0 && playership.getDestructAnimation().isDone()) {
-            getGameStateManager().change(new GameOver());
+            quit(new GameOver());
             return;
         }
 
@@ -110,7 +110,7 @@ public class GameRunning extends GameState {
                 // If there are no more levels, we've completed
                 // the game!
                 if (currentlevel == null) {
-                    getGameStateManager().change(new VictoryScreen());
+                    quit(new VictoryScreen());
                     return;
                 }
             }
@@ -118,23 +118,55 @@ public class GameRunning extends GameState {
     }
 
     /**
-     * Repaints the running game.
-     * 
-     * @param g2D
+     * Hands over what the world looks like right now to the
+     * renderer, so that it doesn't have to touch the world
+     * while we update it.
      */
-    public synchronized void draw(Graphics2D g2D) {
+    private void publishSnapshot() {
+        RenderSnapshot snapshot = snapshots.beginWrite();
         if (currentlevel != null) {
-            currentlevel.draw(g2D);
-        }
-        if (playership != null) {
-            playership.draw(g2D);
+            currentlevel.capture(snapshot);
         }
+        playership.capture(snapshot);
+        snapshots.publish();
+    }
+
+    /**
+     * Repaints the running game from the latest complete snapshot.
+     * 
+     * @param g2D
+     */
+    public void draw(Graphics2D g2D) {
+        render(g2D, 1.0f);
+    }
 
-        if (currentlevel != null && currentlevel.inEditorMode()) {
-            // Print out debug information
-            g2D.setFont(font);
-            g2D.setColor(Color.white);
-            g2D.drawString("Offset: " + currentlevel.getOffset(), 0, 460);
+    /**
+     * Repaints the running game from the latest complete snapshot,
+     * with everything moved part of the way from the step before.
+     * In editor mode we draw straight from the level instead,
+     * since there's a lot more information to show.
+     * 
+     * @param g2D
+     * @param interpolation How far the game has come between
+     *        two logic steps (0.0 to 1.0)
+     */
+    public void render(Graphics2D g2D, float interpolation) {
+        Level level = currentlevel;
+        if (level != null && level.inEditorMode()) {
+            // Keeps the logic from updating while we draw
+            synchronized (this) {
+                level.draw(g2D);
+                if (playership != null) {
+                    playership.draw(g2D);
+                }
+
+                // Print out debug information
+                g2D.setFont(font);
+                g2D.setColor(Color.white);
+                g2D.drawString("Offset: " + level.getOffset(), 0, 460);
+            }
+        } else {
+            snapshots.latest().draw(g2D, interpolation);
         }
     }
 
@@ -212,7 +244,7 @@ public class GameRunning extends GameState {
 
                 case EXIT:
                     if (!down) {
-                        getGameStateManager().change(new MainMenu());
+                        quit(new MainMenu());
                     }
                     break;
 
@@ -247,29 +279,55 @@ public class GameRunning extends GameState {
     public void mouseEvent(MouseEvent event) {
     }
 
+    /**
+     * Increases the offset every OFFSET_PERIOD, so that
+     * we advance on the level. Called once every logic step.
+     */
+    private void advanceOffset() {
+        offsettime += GameLoop.TICK_MILLIS;
+        while (offsettime >= OFFSET_PERIOD) {
+            currentlevel.increaseOffset(1);
+            offsettime -= OFFSET_PERIOD;
+        }
+    }
+
+    /**
+     * Leaves the running game for another state. The next
+     * level won't be needed, so we stop preloading it, and we
+     * let go of the current one and the sounds only it used.
+     * 
+     * @param state State to change to
+     */
+    private void quit(GameState state) {
+        preloader.shutdown();
+        getGameStateManager().change(state);
+        if (currentlevel != null) {
+            currentlevel.dispose();
+        }
+        SoundBank.getInstance().unloadUnused();
+    }
+
     /**
      * Activate us again.
      */
     public void gainedFocus() {
-        active = true;
         if (currentlevel != null) {
-            currentlevel.loopSound("theme");
+            currentlevel.fadeInSound("theme", SoundPlayer.TRANSITION_MILLIS);
         }
     }
 
     /**
-     * Deactive the timer.
+     * Stop the music.
      */
     public void lostFocus() {
-        active = false;
         if (currentlevel != null) {
-            currentlevel.stopSound("theme");
+            currentlevel.fadeOutSound("theme", SoundPlayer.TRANSITION_MILLIS);
         }
     }
 
     /**
      * Scans the current directory for
-     * .level-files, and stores their names in
+     * level files, and stores their names in
      * levelnames.
      */
     private void initLevelList() {
@@ -285,41 +343,50 @@ public class GameRunning extends GameState {
     }
 
     /**
-     * Used to get all the .level-files.
+     * Used to get all the level files. An old .level-file is
+     * skipped if it has been converted to the new format.
      */
     private class JustLevels implements FilenameFilter {
 
         public boolean accept(File dir, String name) {
-            return (name.endsWith(".level"));
+            if (LevelLoader.isLegacy(name)) {
+                String base = name.substring(0, name.length() - LevelLoader.LEGACY_EXTENSION.length());
+                return !new File(dir, base + LevelFormat.EXTENSION).exists();
+            }
+            return LevelLoader.isLevel(name);
         }
     }
 
     /**
      * Loads the next level. If there are no more levels to
      * load, it will return null.
+     * The next level has usually been preloaded in the background
+     * while the last one was played, and is just handed over. The
+     * level after that starts preloading right away.
      */
     private void loadNextLevel() {
         lostFocus();
-        if (levelnames.empty()) {
+        Level finished = currentlevel;
+        if (preloader.isPending()) {
+            if (!preloader.isReady()) {
+                System.out.println("Waiting for level " + preloader.getFilename() + "...");
+            }
+            currentlevel = preloader.take();
+        } else if (levelnames.empty()) {
             currentlevel = null;
         } else {
             String filename = levelnames.pop();
             System.out.println("Loading level " + filename + "...");
             currentlevel = levelloader.load(filename);
         }
-        gainedFocus();
-    }
-
-    /**
-     * Sole purpose of this task is to increase the offset, so that
-     * we advance on the level.
-     */
-    private class OffsetTask extends TimerTask {
-
-        public void run() {
-            if (active && currentlevel != null) {
-                currentlevel.increaseOffset(1);
-            }
+        if (!levelnames.empty()) {
+            preloader.prefetch(levelnames.pop());
         }
+        if (finished != null) {
+            finished.dispose();
+        }
+        // The first step on a new level increases the offset
+        offsettime = OFFSET_PERIOD;
+        gainedFocus();
     }
 }
@@ -63,6 +63,22 @@ public abstract class GameState {
      */
     public abstract void draw(Graphics2D g2D);
 
+    /**
+     * Called by the renderer to draw the state. States that
+     * can move their things smoothly between two logic steps
+     * use the interpolation, the others just draw(), locked
+     * so that the state isn't updated halfway through.
+     * 
+     * @param g2D Graphics context to draw to
+     * @param interpolation How far the game has come between
+     *        two logic steps (0.0 to 1.0)
+     */
+    public void render(Graphics2D g2D, float interpolation) {
+        synchronized (this) {
+            draw(g2D);
+        }
+    }
+
     /**
      * Called when the user presses or releases a key.
      * 
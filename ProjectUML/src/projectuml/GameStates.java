@@ -13,12 +13,15 @@ import java.util.*;
 public class GameStates {
 
     private Stack<GameState> states;
+    // Copy of the stack for the renderer, replaced on every change
+    private volatile GameState[] drawstates;
 
     /**
      * Initiates the game state stack.
      */
     public GameStates() {
         states = new Stack<GameState>();
+        drawstates = new GameState[0];
     }
 
     /**
@@ -33,6 +36,7 @@ public class GameStates {
             states.peek().lostFocus();
         }
         states.push(state);
+        drawstates = states.toArray(new GameState[states.size()]);
         state.setGameStateManager(this);
         state.gainedFocus();
     }
@@ -44,6 +48,7 @@ public class GameStates {
     private synchronized void pop() {
         if (states.size() > 1) {
             GameState old = states.pop();
+            drawstates = states.toArray(new GameState[states.size()]);
             old.lostFocus();
             states.peek().gainedFocus();
         } else {
@@ -63,6 +68,7 @@ public class GameStates {
             s.lostFocus();
         }
         states.clear();
+        drawstates = new GameState[0];
         if (state != null) {
             push(state);
             state.gainedFocus();
@@ -76,7 +82,12 @@ public class GameStates {
      */
     public synchronized void update(Player player) {
         if (!states.empty()) {
-            states.peek().update(player);
+            GameState state = states.peek();
+            // Locked, so that the renderer never draws
+            // a state that's halfway through an update
+            synchronized (state) {
+                state.update(player);
+            }
             if (states.peek().canRemove()) {
                 pop();
             }
@@ -84,13 +95,27 @@ public class GameStates {
     }
 
     /**
-     * Draws every state to the screen.
+     * Draws every state to the screen. The running game is
+     * drawn from its latest snapshot without waiting, the other
+     * states lock themselves against their update.
+     *
+     * @param g2D
+     */
+    public void draw(Graphics2D g2D) {
+        draw(g2D, 1.0f);
+    }
+
+    /**
+     * Draws every state to the screen, part of the way
+     * between two logic steps.
      *
      * @param g2D
+     * @param interpolation How far the game has come between
+     *        two logic steps (0.0 to 1.0)
      */
-    public synchronized void draw(Graphics2D g2D) {
-        for (GameState state : states) {
-            state.draw(g2D);
+    public void draw(Graphics2D g2D, float interpolation) {
+        for (GameState state : drawstates) {
+            state.render(g2D, interpolation);
         }
     }
 
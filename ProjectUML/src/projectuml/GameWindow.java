@@ -21,63 +21,7 @@ public class GameWindow extends JFrame implements WindowFocusListener {
     private GraphicsConfiguration config;
     private BufferStrategy strategy;
     private Vector<DrawListener> drawlisteners;
-    private java.util.Timer timer;
-    private final long RENDER_INTERVAL = 16;
-
-    /**
-     * Timer task that renders the scene.
-     * This task creates a backbuffer which all sprites gets drawn on
-     * and blit the buffer to the screen. The buffer uses volatile image
-     * which is stored in video memory.
-     */
-    private class RenderTask extends TimerTask {
-
-        public void run() {
-            if (active) {
-                long frametime = System.currentTimeMillis();
-                Graphics graphics = null;
-                Graphics2D graph2d = null;
-                try {
-                    if (backbuffer.validate(config) == VolatileImage.IMAGE_INCOMPATIBLE) {
-                        // Backbuffer lost, recreate
-                        System.out.println("Backbuffer lost");
-                        backbuffer = config.createCompatibleVolatileImage(backbuffer.getWidth(), backbuffer.getHeight());
-                    }
-                    graph2d = backbuffer.createGraphics();
-                    graph2d.setColor(Color.black);
-                    graph2d.fillRect(0, 0, backbuffer.getWidth(), backbuffer.getHeight());
-
-                    // Notify all registered draw listeners
-                    for (DrawListener listener : drawlisteners) {
-                        listener.draw(graph2d);
-                    }
-
-                    // Display new contents
-                    graphics = strategy.getDrawGraphics();
-                    graphics.drawImage(backbuffer, 0, 0, null);
-
-                // If we blow up, dispose of the graphics objects.
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                } finally {
-                    if (graphics != null) {
-                        graphics.dispose();
-                    }
-                    if (graph2d != null) {
-                        graph2d.dispose();
-                    }
-                }
-
-                if (!strategy.contentsLost()) {
-                    strategy.show();
-                }
-
-                // Used on Linux-systems to get better
-                // performance, appearently?
-                Toolkit.getDefaultToolkit().sync();
-            }
-        }
-    }
+    private float interpolation;
 
     /**
      * Creates main window.
@@ -252,15 +196,76 @@ public class GameWindow extends JFrame implements WindowFocusListener {
     }
 
     /**
-     * Starts the main rendering loop.
+     * Number of registered draw listeners.
+     *
+     * @return Number of listeners
      */
-    public void run() {
-        if (drawlisteners.isEmpty()) {
-            System.err.println("---  Warning: no drawlistener registered!  ---");
+    public int getDrawListenerCount() {
+        return drawlisteners.size();
+    }
+
+    /**
+     * Renders the scene, unless the window has lost its focus.
+     * The scene is drawn on a backbuffer which all sprites gets
+     * drawn on and then blitted to the screen. The buffer uses
+     * volatile image which is stored in video memory.
+     * 
+     * @param interpolation How far the game has come between two
+     *                      logic steps (0.0 to 1.0)
+     */
+    public void render(float interpolation) {
+        if (active) {
+            this.interpolation = interpolation;
+            Graphics graphics = null;
+            Graphics2D graph2d = null;
+            try {
+                if (backbuffer.validate(config) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    // Backbuffer lost, recreate
+                    System.out.println("Backbuffer lost");
+                    backbuffer = config.createCompatibleVolatileImage(backbuffer.getWidth(), backbuffer.getHeight());
+                }
+                graph2d = backbuffer.createGraphics();
+                graph2d.setColor(Color.black);
+                graph2d.fillRect(0, 0, backbuffer.getWidth(), backbuffer.getHeight());
+
+                // Notify all registered draw listeners
+                for (DrawListener listener : drawlisteners) {
+                    listener.draw(graph2d);
+                }
+
+                // Display new contents
+                graphics = strategy.getDrawGraphics();
+                graphics.drawImage(backbuffer, 0, 0, null);
+
+            // If we blow up, dispose of the graphics objects.
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            } finally {
+                if (graphics != null) {
+                    graphics.dispose();
+                }
+                if (graph2d != null) {
+                    graph2d.dispose();
+                }
+            }
+
+            if (!strategy.contentsLost()) {
+                strategy.show();
+            }
+
+            // Used on Linux-systems to get better
+            // performance, appearently?
+            Toolkit.getDefaultToolkit().sync();
         }
+    }
 
-        // Start main loop
-        timer = new java.util.Timer();
-        timer.scheduleAtFixedRate(new RenderTask(), RENDER_INTERVAL, RENDER_INTERVAL);
+    /**
+     * Interpolation factor of the frame being rendered, that is
+     * how far the game has come between two logic steps.
+     * 
+     * @return Value between 0.0 and 1.0
+     */
+    public float getInterpolation() {
+        return interpolation;
     }
 }
@@ -57,18 +57,29 @@ abstract public class GeneralFactory<E> implements Iterable<String> {
         }
     }
     
+    /**
+     * Checks if there's a creator registered by a name.
+     * 
+     * @param name Name of the object type
+     * @return True if there is
+     */
+    public boolean contains(String name) {
+        return creators.containsKey(name);
+    }
+
     /**
      * Creates an instance from a randomly chosen creator
      * 
+     * @param random Source to choose with
      * @return A new instance, or null if there aren't any creators
      */
-    public E createRandom() {
+    public E createRandom(RandomSource random) {
         if (creators.isEmpty()) {
             return null;
         } else {
-            int index = Randomizer.getRandomNumber(0, creators.size()-1);
+            int index = random.getNumber(0, creators.size()-1);
             String name = (String)creators.keySet().toArray()[index];
-            return creators.get(name).create();
+            return create(name);
         }
     }
 
@@ -12,7 +12,10 @@ import java.io.Serializable;
  */
 abstract public class Gunner implements Serializable {
 
+    private static final long serialVersionUID = -5122877082747195879L;
+
     private Ship ship;
+    transient private RandomSource random;
 
     /**
      * Creates a new instance of Gunner. 
@@ -39,4 +42,33 @@ abstract public class Gunner implements Serializable {
     public void setShip(Ship ship) {
         this.ship = ship;
     }
+
+    /**
+     * Get the source of the gunner's random numbers. A
+     * gunner that hasn't been given one gets one of its own.
+     * 
+     * @return RandomSource
+     */
+    public RandomSource getRandom() {
+        if (random == null) {
+            random = new RandomSource();
+        }
+        return random;
+    }
+
+    /**
+     * Cancels whatever the gunner has scheduled. Called
+     * when its ship is destroyed or let go of.
+     */
+    public void cancelTimers() {
+    }
+
+    /**
+     * Set the source of the gunner's random numbers.
+     * 
+     * @param random
+     */
+    public void setRandom(RandomSource random) {
+        this.random = random;
+    }
 }
@@ -0,0 +1,405 @@
+package projectuml;
+
+import java.awt.Point;
+import java.util.*;
+
+/**
+ * HeadlessRunner
+ *
+ * Steps a level without a window, a screen or a sound card, as
+ * fast as the CPU allows. Used to soak-test and profile levels on
+ * machines without a display. Run it from the directory holding the
+ * game's images, with java.awt.headless=true:
+ *
+ *   java -Djava.awt.headless=true projectuml.HeadlessRunner [options] [file.lvl]
+ *
+ * The level file can be in either format LevelLoader knows of.
+ * Without a level file a synthetic level is built instead.
+ * Options:
+ *   -ticks n     Number of logic steps to take (default 10000)
+ *   -enemies n   Enemies in the synthetic level (default 50)
+ *   -shots n     Shots in the synthetic level (default 200)
+ *   -mix         Mix the sounds played, into a buffer
+ *   -alloc       After the run, check that further steps allocate
+ *                nothing, and fail if they do
+ *   -threads n   Threads to update the enemies on (default 0, the
+ *                calling thread)
+ *   -seed n      Seed of the level's random numbers, so that a run
+ *                can be repeated (default a new seed every run)
+ *   -verify      Run the synthetic level twice, with the enemies
+ *                updated one by one and on the threads, and fail
+ *                unless both runs play out the same
+ *
+ * Images and sounds are stubbed, so nothing but the game logic is
+ * measured. Steps are taken back to back instead of every
+ * GameLoop.TICK_MILLIS, otherwise the level plays out as in the game.
+ *
+ * @see Level
+ * @see GameRunning
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class HeadlessRunner {
+
+    // Steps taken by the allocation check
+    private static final int ALLOC_TICKS = 1000;
+    // Rounds of the allocation check, of which the best counts,
+    // in case the JIT recompiles a step in the middle of one
+    private static final int ALLOC_ROUNDS = 3;
+    // Seed of the verify runs, unless another is given
+    private static final long VERIFY_SEED = 20070521L;
+    private Level level;
+    private Player player;
+    private PlayerShip playership;
+    private long offsettime;
+    private long ticks;
+    private SoundMixer mixer;     // Mixer to step along, or null
+
+    /**
+     * Creates a runner for a level.
+     *
+     * @param level Level to run
+     */
+    public HeadlessRunner(Level level) {
+        this.level = level;
+        player = new Player();
+        playership = new PlayerShip(player);
+        offsettime = GameRunning.OFFSET_PERIOD;
+        ticks = 0;
+    }
+
+    /**
+     * Takes a single logic step, the same way the running
+     * game does. The player ship keeps firing all the time,
+     * so that there's something to hit.
+     */
+    public void tick() {
+        GameClock.getInstance().tick();
+        offsettime += GameLoop.TICK_MILLIS;
+        while (offsettime >= GameRunning.OFFSET_PERIOD) {
+            level.increaseOffset(1);
+            offsettime -= GameRunning.OFFSET_PERIOD;
+        }
+        level.update(playership);
+        playership.update(level);
+        playership.fire(level);
+        if (mixer != null) {
+            mixer.mix((int) (SoundMixer.SAMPLE_RATE * GameLoop.TICK_MILLIS / 1000));
+        }
+        ticks++;
+    }
+
+    /**
+     * Takes a number of logic steps.
+     *
+     * @param count Number of steps
+     * @return Time it took in nanoseconds
+     */
+    public long run(long count) {
+        long start = System.nanoTime();
+        for (long i = 0; i < count; ++i) {
+            tick();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Takes a number of logic steps and counts the bytes
+     * allocated meanwhile by the current thread. Only that
+     * thread is counted, so nothing is allocated only when the
+     * enemies are updated on it, with 0 threads. The run before
+     * should be long enough for the JIT to have compiled the steps.
+     *
+     * @param count Number of steps
+     * @return Bytes allocated, or -1 if the JVM can't tell
+     */
+    public long measureAllocation(long count) {
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        if (!counter.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        counter.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        long before = counter.getThreadAllocatedBytes(thread);
+        run(count);
+        return counter.getThreadAllocatedBytes(thread) - before;
+    }
+
+    /**
+     * Runs the synthetic level with a fixed seed and the game
+     * clock set back to 0, and sums up its checksum after every step,
+     * so that nothing but the number of threads differs between runs.
+     *
+     * @param enemies Number of enemies
+     * @param shots Number of shots
+     * @param count Number of steps
+     * @param threads Threads to update the enemies on
+     * @param seed Seed of the random numbers
+     * @return Checksum of the whole run
+     */
+    public static long verify(int enemies, int shots, long count, int threads, long seed) {
+        GameClock.getInstance().reset();
+        Level level = createSyntheticLevel(enemies, shots, new RandomSource(seed));
+        level.setRandomSeed(seed);
+        level.setUpdateThreads(threads);
+        HeadlessRunner runner = new HeadlessRunner(level);
+        long sum = 0;
+        for (long i = 0; i < count; ++i) {
+            runner.tick();
+            sum = sum * 31 + level.checksum();
+        }
+        level.dispose();
+        return sum;
+    }
+
+    /**
+     * Mixes sound along with every logic step. The mixer
+     * must not be running a thread of its own.
+     *
+     * @param mixer Mixer, or null for none
+     */
+    public void setMixer(SoundMixer mixer) {
+        this.mixer = mixer;
+    }
+
+    /**
+     * Number of logic steps taken.
+     *
+     * @return ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Retrieves the level being run.
+     *
+     * @return Level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Retrieves the player ship flying through the level.
+     *
+     * @return PlayerShip
+     */
+    public PlayerShip getPlayerShip() {
+        return playership;
+    }
+
+    /**
+     * Builds a level with a certain number of enemies and shots.
+     * The enemies are taken from the EnemyFactory in turn, are
+     * present from the start and circle around random spots on
+     * the right side of the screen. They're tough enough to survive
+     * a long run. The shots are added by addSyntheticShots().
+     *
+     * @param enemies Number of enemies
+     * @param shots Number of shots
+     * @return Level
+     */
+    public static Level createSyntheticLevel(int enemies, int shots) {
+        return createSyntheticLevel(enemies, shots, new RandomSource());
+    }
+
+    /**
+     * Builds a level with a certain number of enemies and shots,
+     * placed with numbers from a random source.
+     *
+     * @param enemies Number of enemies
+     * @param shots Number of shots
+     * @param random
+     * @return Level
+     */
+    public static Level createSyntheticLevel(int enemies, int shots, RandomSource random) {
+        Level level = new Level();
+        level.setScenery(new StarField(100, random));
+
+        EnemyFactory factory = new EnemyFactory();
+        ArrayList<String> types = new ArrayList<String>();
+        for (String type : factory) {
+            types.add(type);
+        }
+        // Same order every time
+        Collections.sort(types);
+
+        for (int i = 0; i < enemies; ++i) {
+            EnemyShip ship = factory.create(types.get(i % types.size()));
+            int x = random.getNumber(320, 560);
+            int y = random.getNumber(20, 400);
+            Path path = new Path(true);
+            path.addPoint(new Point(x, y));
+            path.addPoint(new Point(x + 40, y));
+            path.addPoint(new Point(x + 40, y + 40));
+            path.addPoint(new Point(x, y + 40));
+            ship.setPath(path);
+            ship.setPosition(x, y);
+            ship.increaseHealth(1000000);
+            ship.setOffset(0);
+            level.addShip(ship);
+        }
+
+        addSyntheticShots(level, shots, random);
+        return level;
+    }
+
+    /**
+     * Adds shots at random positions to a level. Every other
+     * shot is the enemies', flying left, and every other is
+     * the player's, flying right.
+     *
+     * @param level Level to add to
+     * @param shots Number of shots
+     */
+    public static void addSyntheticShots(Level level, int shots) {
+        addSyntheticShots(level, shots, level.getRandom());
+    }
+
+    /**
+     * Adds shots to a level, placed with numbers
+     * from a random source.
+     *
+     * @param level Level to add to
+     * @param shots Number of shots
+     * @param random
+     */
+    public static void addSyntheticShots(Level level, int shots, RandomSource random) {
+        for (int i = 0; i < shots; ++i) {
+            int x = random.getNumber(0, 620);
+            int y = random.getNumber(0, 460);
+            if (i % 2 == 0) {
+                level.addEnemyShot(1, -4, 0, x, y, "lasershot.png");
+            } else {
+                level.addPlayerShot(1, 4, 0, x, y, "lasershot.png");
+            }
+        }
+    }
+
+    /**
+     * Runs a level headless and reports how fast it went.
+     *
+     * @param args See the class description
+     */
+    public static void main(String[] args) {
+        long ticks = 10000;
+        int enemies = 50;
+        int shots = 200;
+        String levelfile = null;
+        boolean mix = false;
+        boolean alloc = false;
+        int threads = 0;
+        boolean verify = false;
+        long seed = VERIFY_SEED;
+        boolean seeded = false;
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                if (args[i].equals("-ticks")) {
+                    ticks = Long.parseLong(args[++i]);
+                } else if (args[i].equals("-enemies")) {
+                    enemies = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-shots")) {
+                    shots = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-mix")) {
+                    mix = true;
+                } else if (args[i].equals("-alloc")) {
+                    alloc = true;
+                } else if (args[i].equals("-threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-seed")) {
+                    seed = Long.parseLong(args[++i]);
+                    seeded = true;
+                } else if (args[i].equals("-verify")) {
+                    verify = true;
+                } else {
+                    levelfile = args[i];
+                }
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("Usage: HeadlessRunner [-ticks n] [-enemies n] [-shots n] [-mix] [-alloc] [-threads n] [-seed n] [-verify] [file.lvl]");
+            System.exit(1);
+        }
+
+        if (verify) {
+            int workers = Math.max(threads, 2);
+            long serial = verify(enemies, shots, ticks, 0, seed);
+            long parallel = verify(enemies, shots, ticks, workers, seed);
+            System.out.println("Serial:       " + Long.toHexString(serial));
+            System.out.println("Threads (" + workers + "):  " + Long.toHexString(parallel));
+            System.exit(serial == parallel ? 0 : 1);
+        }
+
+        // The mixer must be in place before the level
+        // creates its sound player
+        SoundMixer mixer = null;
+        OfflineSink sink = new OfflineSink(false);
+        if (mix) {
+            mixer = new SoundMixer();
+            try {
+                mixer.open(sink);
+            } catch (javax.sound.sampled.LineUnavailableException ex) {
+                System.err.println(ex.getMessage());
+                System.exit(1);
+            }
+            SoundMixer.setInstance(mixer);
+        }
+
+        Level level;
+        if (levelfile != null) {
+            level = new LevelLoader().load(levelfile);
+            if (level == null) {
+                System.err.println("Level " + levelfile + " couldn't be loaded!");
+                System.exit(1);
+            }
+        } else {
+            level = createSyntheticLevel(enemies, shots,
+                    seeded ? new RandomSource(seed) : new RandomSource());
+        }
+        if (seeded) {
+            level.setRandomSeed(seed);
+        }
+        level.setUpdateThreads(threads);
+
+        HeadlessRunner runner = new HeadlessRunner(level);
+        runner.setMixer(mixer);
+        long nanos = runner.run(ticks);
+
+        double seconds = nanos / 1e9;
+        System.out.println("Ticks:        " + runner.getTicks());
+        System.out.println("Time:         " + String.format("%.3f s", seconds));
+        System.out.println("Ticks/second: " + String.format("%.1f", runner.getTicks() / seconds));
+        System.out.println("Realtime:     " + String.format("%.1fx",
+                runner.getTicks() * GameLoop.TICK_MILLIS / 1000.0 / seconds));
+        System.out.println("Offset:       " + level.getOffset());
+        System.out.println("Entities:     " + level.getEntityCount());
+        System.out.println("Shots fired:  " + level.getShotsFired() + " (room for "
+                + level.getShotsAllocated() + ", full " + level.getShotExhaustions() + " times)");
+        System.out.println("Completed:    " + level.isCompleted());
+        if (mixer != null) {
+            System.out.println("Sound bytes:  " + sink.getBytesWritten());
+            System.out.println("Voices:       " + mixer.getActiveVoiceCount() + "/" + mixer.getVoiceCount());
+            System.out.println("Stolen:       " + mixer.getStolenCount());
+            System.out.println("Dropped:      " + mixer.getDroppedCount());
+        }
+        if (alloc) {
+            long bytes = runner.measureAllocation(ALLOC_TICKS);
+            for (int i = 1; i < ALLOC_ROUNDS && bytes > 0; ++i) {
+                bytes = Math.min(bytes, runner.measureAllocation(ALLOC_TICKS));
+            }
+            if (bytes < 0) {
+                System.out.println("Allocated:    unknown, not counted by this JVM");
+            } else {
+                System.out.println("Allocated:    " + bytes + " bytes in " + ALLOC_TICKS + " ticks");
+                if (bytes > 0) {
+                    System.exit(1);
+                }
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -11,6 +11,7 @@ package projectuml;
  */
 public class HurtShip extends TouchBehaviour{
     
+    private static final long serialVersionUID = -6298275634638277453L;
     private int damage;
     
     /**
@@ -0,0 +1,387 @@
+package projectuml;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * ImageCache
+ *
+ * Process-wide cache of decoded images, keyed by file name.
+ * Every image is decoded once and copied into a format compatible
+ * with the graphics device, and then shared by all sprites that
+ * use the same file.
+ * Each user of an image holds a reference to it. Images that no
+ * one references stay in the cache until the cache grows beyond
+ * its capacity, then the least recently used ones are thrown out.
+ * When running headless (java.awt.headless=true) there's no graphics
+ * device, and by default no pixels are decoded at all: images are
+ * stubbed with blank ones of the same size, which is all the game
+ * logic needs.
+ * Images packed in a SpriteAtlas are never decoded on their own: the
+ * cache hands out views into the atlas instead.
+ *
+ * @see Sprite
+ * @see SpriteAtlas
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public final class ImageCache {
+
+    // Default amount of memory unreferenced images may occupy
+    private static final long DEFAULT_CAPACITY = 16 * 1024 * 1024;
+    private static final ImageCache instance = new ImageCache(DEFAULT_CAPACITY);
+    private LinkedHashMap<String, Entry> entries; // In least recently used order
+    private long capacity;   // Max bytes held before unreferenced images are evicted
+    private long bytesheld;  // Bytes held by all cached images
+    private long hits;       // Number of requests served from the cache
+    private long misses;     // Number of requests that had to decode
+    private long evictions;  // Number of images thrown out
+    private boolean stubbed; // Hand out blank images instead of decoding
+    private volatile SpriteAtlas atlas; // Packed images, or null
+
+    /**
+     * A cached image and the number of references to it.
+     */
+    private static class Entry {
+
+        private BufferedImage image;
+        private long bytes;
+        private int references;
+
+        public Entry(BufferedImage image) {
+            this.image = image;
+            bytes = sizeOf(image);
+            references = 0;
+        }
+    }
+
+    /**
+     * Creates an image cache.
+     *
+     * @param capacity Max bytes to hold before evicting
+     */
+    private ImageCache(long capacity) {
+        // Access ordered, so the first entry is the least recently used
+        entries = new LinkedHashMap<String, Entry>(32, 0.75f, true);
+        this.capacity = capacity;
+        bytesheld = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        stubbed = GraphicsEnvironment.isHeadless();
+    }
+
+    /**
+     * Retrieves the cache shared by the whole game.
+     *
+     * @return ImageCache
+     */
+    public static ImageCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Retrieves an image and adds a reference to it. The image is
+     * loaded from file if it isn't in the cache already. Every
+     * successful call should be matched by a call to release().
+     *
+     * @param file Path to image
+     * @return The image, or null if it couldn't be loaded
+     */
+    public synchronized BufferedImage acquire(String file) {
+        SpriteAtlas packed = atlas;
+        if (packed != null) {
+            SpriteAtlas.Region region = packed.getRegion(file);
+            if (region != null) {
+                // The atlas holds on to it for as long as it lives
+                hits++;
+                return region.getView();
+            }
+        }
+
+        Entry entry = entries.get(file);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            BufferedImage image = stubbed ? stub(file) : decode(file);
+            if (image == null) {
+                return null;
+            }
+            entry = new Entry(image);
+            entries.put(file, entry);
+            bytesheld += entry.bytes;
+        }
+        entry.references++;
+        trim();
+        return entry.image;
+    }
+
+    /**
+     * Gives back a reference to an image. When no one references
+     * it anymore it may be evicted from the cache.
+     *
+     * @param file Path to image
+     */
+    public synchronized void release(String file) {
+        Entry entry = entries.get(file);
+        if (entry != null && entry.references > 0) {
+            entry.references--;
+            trim();
+        }
+    }
+
+    /**
+     * Starts handing out images from an atlas, for the images
+     * packed in it. Images already handed out stay as they are.
+     *
+     * @param atlas Atlas, or null to stop using one
+     */
+    public void setAtlas(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Retrieves the atlas images are handed out from.
+     *
+     * @return Atlas, or null
+     */
+    public SpriteAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Looks up where an image handed out by the cache is in
+     * the atlas, so that it can be drawn from there.
+     *
+     * @param image
+     * @return Region, or null if the image isn't in the atlas
+     */
+    public SpriteAtlas.Region getRegion(BufferedImage image) {
+        SpriteAtlas packed = atlas;
+        if (packed == null || image == null) {
+            return null;
+        }
+        return packed.getRegion(image);
+    }
+
+    /**
+     * Changes the amount of memory the cache may hold
+     * before unreferenced images are evicted.
+     *
+     * @param capacity Max bytes
+     */
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        trim();
+    }
+
+    /**
+     * Throws out every unreferenced image.
+     */
+    public synchronized void clear() {
+        long old = capacity;
+        capacity = 0;
+        trim();
+        capacity = old;
+    }
+
+    /**
+     * Decides whether images should be decoded or stubbed with
+     * blank images of the same size. Only affects images that
+     * aren't already in the cache.
+     *
+     * @param stubbed True to stub images
+     */
+    public synchronized void setStubbed(boolean stubbed) {
+        this.stubbed = stubbed;
+    }
+
+    /**
+     * Checks if images are stubbed instead of decoded.
+     *
+     * @return True if images are stubbed
+     */
+    public synchronized boolean isStubbed() {
+        return stubbed;
+    }
+
+    /**
+     * Number of requests that were served from the cache.
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of requests that had to load the image from file.
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of images evicted from the cache.
+     *
+     * @return evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Approximate amount of memory held by the cached images.
+     *
+     * @return Bytes
+     */
+    public synchronized long getBytesHeld() {
+        return bytesheld;
+    }
+
+    /**
+     * Number of images in the cache.
+     *
+     * @return Number of images
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evicts unreferenced images, least recently used first,
+     * until we're within our capacity.
+     */
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytesheld > capacity && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.references == 0) {
+                bytesheld -= entry.bytes;
+                evictions++;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Load image asset and create a BufferedImage.
+     * Make the image compatible to the graphics device
+     * for hardware acceleration. This requires us to copy
+     * the input image.
+     *
+     * @param file Path to image
+     * @return The image, or null if it couldn't be loaded
+     */
+    private static BufferedImage decode(String file) {
+        try {
+            BufferedImage bi, biCopy;
+            bi = ImageIO.read(new File(file));
+            if (bi == null) {
+                // Not an image format we know of
+                return null;
+            }
+
+            // Without a screen there's nothing to be compatible with
+            if (GraphicsEnvironment.isHeadless()) {
+                return bi;
+            }
+
+            // Get the image transparency information
+            int transparency = bi.getColorModel().getTransparency();
+
+            // Here is were the optimization takes place by making the
+            // image compatible with the device's graphics
+            biCopy = createCompatibleImage(bi.getWidth(), bi.getHeight(), transparency);
+
+            // Create a graphics context to draw on
+            Graphics2D g2d = biCopy.createGraphics();
+
+            // Copy image
+            g2d.drawImage(bi, 0, 0, null);
+            g2d.dispose();
+
+            // Return the copied and optimized image
+            return biCopy;
+
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an empty image compatible with the graphics device.
+     * Without a screen there's nothing to be compatible with, and
+     * we settle for an image with alpha.
+     *
+     * @param width
+     * @param height
+     * @param transparency Transparency, as in java.awt.Transparency
+     * @return Empty image
+     */
+    static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        // Get device's graphics configuration
+        GraphicsEnvironment ge;
+        ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        GraphicsConfiguration gc;
+        gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
+        return gc.createCompatibleImage(width, height, transparency);
+    }
+
+    /**
+     * Creates a blank image with the same size as an image
+     * file. Only the header of the file is read.
+     *
+     * @param file Path to image
+     * @return Blank image, or null if the file couldn't be read
+     */
+    private static BufferedImage stub(String file) {
+        try {
+            ImageInputStream stream = ImageIO.createImageInputStream(new File(file));
+            if (stream == null) {
+                return null;
+            }
+            try {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+                if (!readers.hasNext()) {
+                    // Not an image format we know of
+                    return null;
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(stream);
+                    return new BufferedImage(reader.getWidth(0), reader.getHeight(0),
+                            BufferedImage.TYPE_INT_ARGB);
+                } finally {
+                    reader.dispose();
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Approximates how much memory an image occupies.
+     *
+     * @param image
+     * @return Bytes
+     */
+    static long sizeOf(BufferedImage image) {
+        int bytesperpixel = (image.getColorModel().getPixelSize() + 7) / 8;
+        return (long) image.getWidth() * image.getHeight() * bytesperpixel;
+    }
+}
@@ -55,20 +55,16 @@ public class LaserCannon extends Weapon {
      * @param sprite
      */
     public void fire(Level level, Sprite sprite) {
-        // Clone weapons position
-        Point position = (Point) getPosition().clone();
-
-        // Translate position over the sprite that owns the weapon
-        position.translate(sprite.getIntPositionX(), sprite.getIntPositionY());
-        Shot shot = new Shot(DAMAGE, position, getShotImageFile());
+        // Translate weapons position over the sprite that owns the weapon
+        int x = getPosition().x + sprite.getIntPositionX();
+        int y = getPosition().y + sprite.getIntPositionY();
 
         // Make the shot travel in the correct direction
         if (isPlayer()) {
-            shot.setDx(DX);
-            level.addPlayerShot(shot);
+            level.addPlayerShot(DAMAGE, DX, DY, x, y, getShotImageFile());
         } else {
-            shot.setDx(DX * -1); // Reverse direction
-            level.addEnemyShot(shot);
+            // Reverse direction
+            level.addEnemyShot(DAMAGE, DX * -1, DY, x, y, getShotImageFile());
         }
         level.playSound("shot1");
     }
@@ -8,17 +8,37 @@ import java.io.*;
  * Level 
  * 
  * A level in the game.
+ * Enemies loaded from a level file are kept as spawns, sorted by
+ * the offset they appear at, and are only created shortly before
+ * the level reaches them. Once an enemy has been destroyed, and its
+ * explosion is over, it's let go of again. That way a level only
+ * holds the enemies that are on screen, or about to be. The level
+ * editor needs every enemy at hand, and calls materializeAll(). The
+ * enemies that have been shot down come back destroyed, so that
+ * opening the editor in the middle of a game changes nothing. Saving
+ * a level reads the spawns as they are, see getSpawns().
+ * The enemies that have been created are kept in an EnemyIndex, so
+ * that only those that have been reached are looked at.
+ * The enemies are updated by an EnemyUpdater, which can spread them
+ * over a number of threads. Whatever they add to the level while
+ * doing so goes through a CommandBuffer, so the methods they call
+ * check for one before changing anything.
+ * Each enemy gets a RandomSource of its own, split off from the
+ * level's when the enemy is added, so that its random numbers don't
+ * depend on which thread it's updated on.
+ * Gunners, weapons and animations don't check the time every step,
+ * they schedule TimerEvents on the level's TimerWheel instead. The
+ * wheel follows the GameClock, and is emptied when the level is.
  *
  * @author Steve Eriksson, Jens Thuresson
  */
 public class Level implements Serializable {
 
     private static final long serialVersionUID = 1L;
+    // Enemies are created this many offsets before they appear
+    private static final int SPAWN_LOOKAHEAD = 1;
     private Scenery background;
-    private Vector<Shot> playershots;
-    private Vector<Shot> enemyshots;
-    private Vector<EnemyShip> enemies;
-    private Vector<Sprite> pickables;
+    private Vector<EnemyShip> enemies; // Only used to serialize the enemies
     private int offset;
     private boolean editormode;
     private int health;
@@ -26,19 +46,32 @@ public class Level implements Serializable {
     
     // These are transient, meaning that they
     // aren't going to get serialized
+    transient private ShotStore playershots;
+    transient private ShotStore enemyshots;
+    transient private EntityList<Sprite> pickables;
+    transient private EntityList.ReapListener<Sprite> imagereleaser;
+    transient private CollisionGrid<EnemyShip> enemygrid;
+    transient private CollisionGrid<Sprite> spritegrid;
     transient private SoundPlayer soundplayer;
     transient private Font font;
     transient private Font healthfont;
     transient private Timestamp timestamp;
+    transient private ArrayList<EnemySpawn> spawns;   // Enemies to create, by offset
+    transient private int nextspawn;                  // First spawn not yet created
+    transient private IdentityHashMap<EnemyShip, EnemySpawn> spawnedfrom;
+    transient private ArrayList<EnemySpawn> retired;  // Spawns of enemies let go of
+    transient private boolean keepall;                // Never let go of enemies
+    transient private EnemyFactory enemyfactory;
+    transient private EnemyIndex index;
+    transient private EnemyUpdater enemyupdater;
+    transient private RandomSource random;
+    transient private TimerWheel timers;
 
     /** 
      * Creates a new instance of Level 
      */
     public Level() {
-        playershots = new Vector<Shot>();
-        enemyshots = new Vector<Shot>();
-        enemies = new Vector<EnemyShip>();
-        pickables = new Vector<Sprite>();
+        enemies = null;
         background = null;
         offset = 0;
         editormode = false;
@@ -94,6 +127,7 @@ public class Level implements Serializable {
      */
     public void increaseOffset(int amount) {
         offset += amount;
+        index.setOffset(offset);
     }
 
     /**
@@ -106,6 +140,7 @@ public class Level implements Serializable {
         if (offset < 0) {
             offset = 0;
         }
+        index.setOffset(offset);
     }
 
     /**
@@ -125,6 +160,7 @@ public class Level implements Serializable {
         if (this.offset < 0) {
             this.offset = 0;
         }
+        index.setOffset(this.offset);
     }
 
     /**
@@ -138,79 +174,77 @@ public class Level implements Serializable {
             background.update();
         }
 
-        // All the shots the player fires
-        for (Shot shot : playershots) {
-            shot.update();
+        // Create the enemies we'll soon reach
+        materializeSpawns();
+
+        // Sort the enemies we've reached into the grid, so
+        // that each shot only needs to be tested against
+        // the enemies nearby
+        fillEnemyGrid();
 
+        // All the shots the player fires. The loops run from
+        // the end, since a removed shot is replaced by the last
+        playershots.move();
+        for (int s = playershots.size() - 1; s >= 0; --s) {
             // Does it hit an enemy?
-            for (EnemyShip enemy : enemies) {
-                if (offset >= enemy.getOffset()) {
-                    if (!enemy.isDestroyed() && enemy.inShape(shot.getPosition())) {
-                        if (shot.isActive()) {
-                            shot.touch(enemy);
-                            shot.deactivate();
-                            shot.hide();
-                            
-                            
-                        }
-                        break;
-                    }
+            int x = playershots.getX(s);
+            int y = playershots.getY(s);
+            int candidates = enemygrid.query(x, y);
+            for (int i = 0; i < candidates; ++i) {
+                EnemyShip enemy = enemygrid.getCandidate(i);
+                if (!enemy.isDestroyed() && enemy.inShape(x, y)) {
+                    enemy.decreaseHealth(playershots.getDamage(s));
+                    playershots.remove(s);
+                    break;
                 }
             }
+        }
+        playershots.removeOffScreen(640, 480);
 
-            // Is it off-screen?
-            if (shot.getIntPositionX() > 640 || shot.getIntPositionY() > 480) {
-                shot.deactivate();
-                shot.hide();
+        // All the shots the enemies fires, does
+        // any of them hit the player?
+        enemyshots.move();
+        enemyshots.removeOffScreen(640, 480);
+        for (int s = enemyshots.size() - 1; s >= 0 && !player.isDestroyed(); --s) {
+            if (player.inShape(enemyshots.getX(s), enemyshots.getY(s))) {
+                player.decreaseHealth(enemyshots.getDamage(s));
+                enemyshots.remove(s);
             }
         }
 
-        // All the shots the enemies fires
-        for (Shot shot : enemyshots) {
-            shot.update();
+        // Whatever is due by now: gunners firing, weapons
+        // cooling down, animations moving on
+        timers.advance(currentTick(), this);
 
-            // Does it hit the player?
-            if (!player.isDestroyed() && player.inShape(shot.getPosition())) {
-                if (shot.isActive()) {
-                    shot.touch(player);
-                    shot.deactivate();
-                    shot.hide();
-                }
-            }
-        }
+        // All the enemies we've reached
+        enemyupdater.update(this, index.getActive());
 
-        // All the enemies
-//        Rectangle playerrect = new Rectangle(player.getIntPositionX(),
-//                player.getIntPositionY(),
-//                player.getWidth(),
-//                player.getHealth());
-
-        for (EnemyShip ship : enemies) {
-            if (offset >= ship.getOffset()) {
-                ship.update(this);
-
-                // Does the player crash inside the
-                // enemy?
-//                Rectangle enemyrect = new Rectangle(ship.getIntPositionX(),
-//                        ship.getIntPositionY(),
-//                        ship.getWidth(),
-//                        ship.getHeight());
-//                if (playerrect.intersects(enemyrect)) {
-                if (!ship.isDestroyed()) {
-                    if (player.inShape(ship.getPosition())) {
-                        player.destroyShip();
-                        break;
-                    }
-                }
+        // Does the player crash inside an enemy?
+        fillEnemyGrid();
+        int crashes = queryPlayer(enemygrid, player);
+        for (int i = 0; i < crashes; ++i) {
+            EnemyShip ship = enemygrid.getCandidate(i);
+            if (!ship.isDestroyed() && player.inShape(ship.getIntPositionX(), ship.getIntPositionY())) {
+                player.destroyShip();
+                break;
             }
         }
 
         // Update all pickables!
-        for (Sprite sprite : pickables) {
+        spritegrid.clear();
+        for (int i = 0; i < pickables.size(); ++i) {
+            Sprite sprite = pickables.get(i);
             sprite.update(this);
+            if (sprite.isActive() && sprite.isVisible()) {
+                spritegrid.add(sprite);
+            }
+        }
 
-            // Do we touch it?
-            if (player.inShape(sprite.getPosition())) {
+        // Do we touch any of them?
+        int touches = queryPlayer(spritegrid, player);
+        for (int i = 0; i < touches; ++i) {
+            Sprite sprite = spritegrid.getCandidate(i);
+            if (player.inShape(sprite.getIntPositionX(), sprite.getIntPositionY())) {
                 sprite.touch(player);
             }
         }
@@ -218,6 +252,204 @@ public class Level implements Serializable {
         // Store away player lifes
         health = player.getHealth();
         maxhealth = player.getMaxHealth();
+
+        // Move away the enemies that are done for
+        finishEnemies();
+
+        // Get rid of everything that's been shot down
+        // or picked up
+        pickables.reap(imagereleaser);
+    }
+
+    /**
+     * Creates the enemies that are about to appear.
+     */
+    private void materializeSpawns() {
+        while (nextspawn < spawns.size() &&
+                spawns.get(nextspawn).getOffset() <= offset + SPAWN_LOOKAHEAD) {
+            materialize(spawns.get(nextspawn));
+            spawns.set(nextspawn, null);
+            nextspawn++;
+        }
+        // Don't keep a long tail of empty slots around
+        if (nextspawn == spawns.size() && nextspawn > 0) {
+            spawns.clear();
+            nextspawn = 0;
+        }
+    }
+
+    /**
+     * Creates an enemy from its spawn, and adds it to the level.
+     * 
+     * @param spawn
+     */
+    private void materialize(EnemySpawn spawn) {
+        EnemyShip ship = create(spawn);
+        if (ship != null) {
+            ship.setRandom(random.split());
+            index.add(ship);
+            spawnedfrom.put(ship, spawn);
+        }
+    }
+
+    /**
+     * Creates an enemy from its spawn, without adding it.
+     * 
+     * @param spawn
+     * @return EnemyShip, or null if the type is unknown
+     */
+    private EnemyShip create(EnemySpawn spawn) {
+        EnemyShip ship = spawn.materialize(getEnemyFactory());
+        if (ship == null) {
+            System.err.println("Unknown enemy type " + spawn.getType() + ", skipping it");
+        }
+        return ship;
+    }
+
+    /**
+     * The factory enemies are created with, created
+     * the first time it's needed.
+     */
+    private EnemyFactory getEnemyFactory() {
+        if (enemyfactory == null) {
+            enemyfactory = new EnemyFactory();
+        }
+        return enemyfactory;
+    }
+
+    /**
+     * Moves the enemies that have been destroyed and have finished
+     * exploding to the finished ones. Those created from spawns
+     * are let go of instead.
+     */
+    private void finishEnemies() {
+        java.util.List<EnemyShip> active = index.getActive();
+        for (int i = active.size() - 1; i >= 0; --i) {
+            EnemyShip ship = active.get(i);
+            if (ship.isDestroyed() && ship.getDestructAnimation().isDone()) {
+                ship.cancelTimers();
+                boolean retire = !keepall && spawnedfrom.containsKey(ship);
+                index.finish(i, !retire);
+                if (retire) {
+                    retired.add(spawnedfrom.remove(ship));
+                    ship.releaseImage();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates every enemy in the level right away, and keeps
+     * them all from now on. Used when the level is to be edited.
+     * Those that have been let go of were shot down, and are
+     * put back destroyed, among the finished ones.
+     */
+    public synchronized void materializeAll() {
+        keepall = true;
+        for (int i = nextspawn; i < spawns.size(); ++i) {
+            materialize(spawns.get(i));
+        }
+        for (EnemySpawn spawn : retired) {
+            EnemyShip ship = create(spawn);
+            if (ship != null) {
+                ship.hide();
+                ship.setDestroyed();
+                ship.setRandom(random.split());
+                index.addFinished(ship);
+                spawnedfrom.put(ship, spawn);
+            }
+        }
+        spawns.clear();
+        retired.clear();
+        nextspawn = 0;
+    }
+
+    /**
+     * Decodes the images of every type of enemy that's yet to
+     * be created, and the animations they use, so that creating
+     * them later only takes images from the cache. Meant to be
+     * called on another thread before the level is started.
+     */
+    public synchronized void warmUp() {
+        AnimationRegistry.getInstance();
+        HashSet<String> types = new HashSet<String>();
+        for (int i = nextspawn; i < spawns.size(); ++i) {
+            EnemySpawn spawn = spawns.get(i);
+            if (types.add(spawn.getType())) {
+                EnemyShip ship = create(spawn);
+                if (ship != null) {
+                    // The image stays in the cache
+                    ship.releaseImage();
+                }
+            }
+        }
+    }
+
+    /**
+     * Spawns of every enemy in the level: those that have been
+     * created, those yet to be and those that have been let go
+     * of. An enemy created from a spawn is given by its spawn,
+     * unless it has been edited since, the others are described
+     * as they are now. The level isn't changed, so it can be
+     * saved while it's running.
+     * 
+     * @return Spawns, with a null type for enemies of unknown type
+     */
+    public synchronized java.util.List<EnemySpawn> getSpawns() {
+        ArrayList<EnemySpawn> all = new ArrayList<EnemySpawn>();
+        for (int i = 0; i < index.size(); ++i) {
+            EnemyShip ship = index.get(i);
+            EnemySpawn spawn = getSavedSpawn(ship);
+            if (spawn == null) {
+                spawn = EnemySpawn.describe(getEnemyFactory().identify(ship), ship);
+            }
+            all.add(spawn);
+        }
+        for (int i = nextspawn; i < spawns.size(); ++i) {
+            all.add(spawns.get(i));
+        }
+        all.addAll(retired);
+        return all;
+    }
+
+    /**
+     * The spawn an enemy is saved as, or null if it's to be
+     * saved as it is now. Once every enemy is kept they may
+     * have been edited, except those that were shot down.
+     */
+    private EnemySpawn getSavedSpawn(EnemyShip ship) {
+        EnemySpawn spawn = spawnedfrom.get(ship);
+        if (spawn != null && keepall && !ship.isDestroyed()) {
+            return null;
+        }
+        return spawn;
+    }
+
+    /**
+     * Puts all enemies that are in the level, and haven't
+     * been destroyed, into the enemy grid.
+     */
+    private void fillEnemyGrid() {
+        enemygrid.clear();
+        java.util.List<EnemyShip> active = index.getActive();
+        for (int i = 0; i < active.size(); ++i) {
+            EnemyShip enemy = active.get(i);
+            if (!enemy.isDestroyed()) {
+                enemygrid.add(enemy);
+            }
+        }
+    }
+
+    /**
+     * Finds the sprites in a grid that might touch the player.
+     * 
+     * @param grid Grid to search
+     * @param player
+     * @return Number of candidates
+     */
+    private int queryPlayer(CollisionGrid<? extends Sprite> grid, PlayerShip player) {
+        return grid.query(player.getIntPositionX(), player.getIntPositionY(),
+                player.getWidth(), player.getHeight());
     }
 
     /**
@@ -232,46 +464,22 @@ public class Level implements Serializable {
         }
 
         // Draw the enemies that's at least
-        // in our offset
-        for (EnemyShip ship : enemies) {
-            if (offset >= ship.getOffset()) {
-                ship.draw(g2D);
-
-                // Draw more info if we're in editor mode
-                if (editormode) {
-                    g2D.setColor(Color.red);
-                    g2D.setFont(font);
-                    g2D.drawRect(ship.getIntPositionX(), ship.getIntPositionY(),
-                            ship.getWidth(), ship.getHeight());
-                    Integer health = new Integer(ship.getHealth());
-                    g2D.drawString("Health: " + health, ship.getIntPositionX(), ship.getIntPositionY());
-
-                    Integer off = new Integer(ship.getOffset());
-                    g2D.drawString("Offset: " + off, ship.getIntPositionX(), ship.getIntPositionY() + ship.getHeight() + font.getSize());
-                } else {
-                    // Just draw health
-                    if (!ship.isDestroyed()) {
-                        float percent = ship.getHealth() / (float) ship.getMaxHealth();
-                        if (percent > 0.5) {
-                            g2D.setColor(Color.green);
-                        } else {
-                            g2D.setColor(Color.red);
-                        }
-                        g2D.fillRect(ship.getIntPositionX(), ship.getIntPositionY() + ship.getHeight(), (int) (percent * ship.getWidth()), 2);
-                    }
-                }
+        // in our offset. The finished ones are
+        // only seen in editor mode
+        for (EnemyShip ship : index.getActive()) {
+            drawEnemy(g2D, ship);
+        }
+        if (editormode) {
+            for (EnemyShip ship : index.getFinished()) {
+                drawEnemy(g2D, ship);
             }
         }
 
         // Draw the enemy bullets
-        for (Shot shot : enemyshots) {
-            shot.draw(g2D);
-        }
+        enemyshots.draw(g2D);
 
         // Draw the player's bullets
-        for (Shot shot : playershots) {
-            shot.draw(g2D);
-        }
+        playershots.draw(g2D);
 
         // Draw the pickables
         for (Sprite sprite : pickables) {
@@ -286,12 +494,97 @@ public class Level implements Serializable {
         }
     }
 
+    /**
+     * Draws an enemy, and its health or more info
+     * if we're in editor mode.
+     * 
+     * @param g2D
+     * @param ship
+     */
+    private void drawEnemy(Graphics2D g2D, EnemyShip ship) {
+        ship.draw(g2D);
+
+        // Draw more info if we're in editor mode
+        if (editormode) {
+            g2D.setColor(Color.red);
+            g2D.setFont(font);
+            g2D.drawRect(ship.getIntPositionX(), ship.getIntPositionY(),
+                    ship.getWidth(), ship.getHeight());
+            Integer health = new Integer(ship.getHealth());
+            g2D.drawString("Health: " + health, ship.getIntPositionX(), ship.getIntPositionY());
+
+            Integer off = new Integer(ship.getOffset());
+            g2D.drawString("Offset: " + off, ship.getIntPositionX(), ship.getIntPositionY() + ship.getHeight() + font.getSize());
+        } else {
+            // Just draw health
+            if (!ship.isDestroyed()) {
+                float percent = ship.getHealth() / (float) ship.getMaxHealth();
+                if (percent > 0.5) {
+                    g2D.setColor(Color.green);
+                } else {
+                    g2D.setColor(Color.red);
+                }
+                g2D.fillRect(ship.getIntPositionX(), ship.getIntPositionY() + ship.getHeight(), (int) (percent * ship.getWidth()), 2);
+            }
+        }
+    }
+
+    /**
+     * Fills in a snapshot of the level, which can be drawn
+     * later without touching the level itself. Draws the
+     * same things as draw() does outside editor mode.
+     * 
+     * @param snapshot Snapshot to fill in
+     */
+    public synchronized void capture(RenderSnapshot snapshot) {
+        if (background != null) {
+            background.capture(snapshot);
+        }
+
+        // The enemies that's at least in our offset,
+        // and their health
+        for (EnemyShip ship : index.getActive()) {
+            int previousx = ship.getPreviousX();
+            int previousy = ship.getPreviousY();
+            ship.capture(snapshot);
+            if (!ship.isDestroyed()) {
+                float percent = ship.getHealth() / (float) ship.getMaxHealth();
+                snapshot.addHealthBar(previousx, previousy + ship.getHeight(),
+                        ship.getIntPositionX(), ship.getIntPositionY() + ship.getHeight(),
+                        ship.getWidth(), percent);
+            }
+        }
+
+        // The bullets and the pickables
+        enemyshots.capture(snapshot);
+        playershots.capture(snapshot);
+        for (Sprite sprite : pickables) {
+            sprite.capture(snapshot);
+        }
+
+        if (!editormode) {
+            snapshot.setHUD(healthfont, health, maxhealth);
+        }
+    }
+
     /**
      * Draws the heads-up-display (info about player health).
      * 
      * @param g2D
      */
     private synchronized void drawHUD(Graphics2D g2D) {
+        drawHUD(g2D, healthfont, health, maxhealth);
+    }
+
+    /**
+     * Draws a heads-up-display with certain values.
+     * 
+     * @param g2D
+     * @param font Font to print with
+     * @param health Player health
+     * @param maxhealth Player max health
+     */
+    static void drawHUD(Graphics2D g2D, Font font, int health, int maxhealth) {
         float percent = 0f;
         if (maxhealth > 0) {
             percent = health / (float) maxhealth;
@@ -303,7 +596,7 @@ public class Level implements Serializable {
         final int height = 5;
 
         g2D.setColor(Color.green);
-        g2D.setFont(healthfont);
+        g2D.setFont(font);
         g2D.drawString("Life", startx, starty - border);
         g2D.drawLine(startx, starty - border, 640 - startx, starty - border);
         if (percent > 0.5) {
@@ -317,26 +610,72 @@ public class Level implements Serializable {
     /**
      * Adds a shot from the player to the level world.
      * 
+     * @param damage Damage done on impact
+     * @param dx Movement in x-direction
+     * @param dy Movement in y-direction
+     * @param x Start position
+     * @param y
+     * @param imageFile Path to image
+     */
+    public void addPlayerShot(int damage, int dx, int dy, int x, int y, String imageFile) {
+        CommandBuffer buffer = CommandBuffer.getCurrent();
+        if (buffer != null) {
+            buffer.addPlayerShot(damage, dx, dy, x, y, imageFile);
+            return;
+        }
+        synchronized (this) {
+            playershots.add(damage, dx, dy, x, y, imageFile);
+        }
+    }
+
+    /**
+     * Adds a shot from the enemy to the level world.
+     * 
+     * @param damage Damage done on impact
+     * @param dx Movement in x-direction
+     * @param dy Movement in y-direction
+     * @param x Start position
+     * @param y
+     * @param imageFile Path to image
+     */
+    public void addEnemyShot(int damage, int dx, int dy, int x, int y, String imageFile) {
+        CommandBuffer buffer = CommandBuffer.getCurrent();
+        if (buffer != null) {
+            buffer.addEnemyShot(damage, dx, dy, x, y, imageFile);
+            return;
+        }
+        synchronized (this) {
+            enemyshots.add(damage, dx, dy, x, y, imageFile);
+        }
+    }
+
+    /**
+     * Adds a shot from the player, for code that builds its
+     * shots as Shot objects. The level only keeps what the
+     * shot is made of, and the shot gives back its image.
+     * 
      * @param shot
      */
-    public synchronized void addPlayerShot(Shot shot) {
+    public void addPlayerShot(Shot shot) {
         if (shot != null) {
-            shot.show();
-            shot.activate();
-            playershots.add(shot);
+            addPlayerShot(shot.getDamage(), shot.getDx(), shot.getDy(),
+                    shot.getIntPositionX(), shot.getIntPositionY(), shot.getImageFile());
+            shot.releaseImage();
         }
     }
 
     /**
-     * Adds a shot from the enemy to the level world.
+     * Adds a shot from the enemy, for code that builds its
+     * shots as Shot objects. The level only keeps what the
+     * shot is made of, and the shot gives back its image.
      * 
      * @param shot
      */
-    public synchronized void addEnemyShot(Shot shot) {
+    public void addEnemyShot(Shot shot) {
         if (shot != null) {
-            shot.show();
-            shot.activate();
-            enemyshots.add(shot);
+            addEnemyShot(shot.getDamage(), shot.getDx(), shot.getDy(),
+                    shot.getIntPositionX(), shot.getIntPositionY(), shot.getImageFile());
+            shot.releaseImage();
         }
     }
 
@@ -345,12 +684,45 @@ public class Level implements Serializable {
      * 
      * @param ship
      */
-    public void addShip(EnemyShip ship) {
+    public synchronized void addShip(EnemyShip ship) {
         if (ship != null) {
-            enemies.add(ship);
+            ship.setRandom(random.split());
+            index.add(ship);
         }
     }
 
+    /**
+     * Adds an enemy that's to be created when the level
+     * gets close to its offset.
+     * 
+     * @param spawn
+     */
+    public synchronized void addSpawn(EnemySpawn spawn) {
+        if (spawn == null) {
+            return;
+        }
+        if (keepall) {
+            materialize(spawn);
+            return;
+        }
+        // After those with the same offset, so that
+        // they're created in the order they were added
+        int index = spawns.size();
+        while (index > nextspawn && spawns.get(index - 1).getOffset() > spawn.getOffset()) {
+            index--;
+        }
+        spawns.add(index, spawn);
+    }
+
+    /**
+     * Number of enemies that are yet to be created.
+     * 
+     * @return Number of spawns
+     */
+    public int getPendingSpawnCount() {
+        return spawns.size() - nextspawn;
+    }
+
     /**
      * Adds a pickable object (i.e. PowerUps).
      * 
@@ -358,7 +730,12 @@ public class Level implements Serializable {
      */
     public void addPickable(Sprite sprite) {
         if (sprite != null) {
-            pickables.add(sprite);
+            CommandBuffer buffer = CommandBuffer.getCurrent();
+            if (buffer != null) {
+                buffer.addPickable(sprite);
+            } else {
+                pickables.add(sprite);
+            }
         }
     }
 
@@ -367,15 +744,29 @@ public class Level implements Serializable {
      * 
      * @param point
      */
-    public void removeShipAt(Point point) {
+    public synchronized void removeShipAt(Point point) {
         EnemyShip marked = getShipAt(point);
 
         // Did we find anyone?
         if (marked != null) {
-            enemies.remove(marked);
+            marked.cancelTimers();
+            index.remove(marked);
+            spawnedfrom.remove(marked);
+            marked.releaseImage();
         }
     }
 
+    /**
+     * Changes the offset of an enemy ship in the level.
+     * 
+     * @param ship
+     * @param offset New offset
+     */
+    public synchronized void setShipOffset(EnemyShip ship, int offset) {
+        ship.setOffset(offset);
+        index.reposition(ship);
+    }
+
     /**
      * Returns the ship at the specified position, if
      * it's visible in the current offset.
@@ -383,15 +774,26 @@ public class Level implements Serializable {
      * @param point Expected point
      * @return EnemyShip at the position, or null
      */
-    public EnemyShip getShipAt(Point point) {
-//        for (EnemyShip ship : enemies) {
-//            if (offset >= ship.getOffset() && ship.inShape(point)) {
-//                return ship;
-//            }
-//        }
-        for (int i=enemies.size()-1; i >= 0; --i) {
-            EnemyShip ship = enemies.elementAt(i);
-            if (offset >= ship.getOffset() && ship.inShape(point)) {
+    public synchronized EnemyShip getShipAt(Point point) {
+        // Those drawn last first, as they're on top
+        EnemyShip ship = getShipAt(index.getFinished(), point);
+        if (ship == null) {
+            ship = getShipAt(index.getActive(), point);
+        }
+        return ship;
+    }
+
+    /**
+     * Returns the last ship in a list at the specified position.
+     * 
+     * @param ships Ships to search
+     * @param point Expected point
+     * @return EnemyShip at the position, or null
+     */
+    private EnemyShip getShipAt(java.util.List<EnemyShip> ships, Point point) {
+        for (int i = ships.size() - 1; i >= 0; --i) {
+            EnemyShip ship = ships.get(i);
+            if (ship.inShape(point)) {
                 return ship;
             }
         }
@@ -399,14 +801,247 @@ public class Level implements Serializable {
         return null;
     }
 
+    /**
+     * Number of enemy ships that have been created, whether
+     * they've been reached or not. Call materializeAll() first
+     * to get every enemy in the level, or getSpawns() to count
+     * them without creating them.
+     * 
+     * @return Number of ships
+     */
+    public int getShipCount() {
+        return index.size();
+    }
+
+    /**
+     * Retrieves an enemy ship, in the order they were added.
+     * 
+     * @param index Between 0 and the number of ships
+     * @return EnemyShip
+     */
+    public EnemyShip getShip(int index) {
+        return this.index.get(index);
+    }
+
+    /**
+     * Makes room for a number of shots on each side, so
+     * that the shot stores don't have to grow while playing.
+     * 
+     * @param capacity Number of shots
+     */
+    public synchronized void setShotCapacity(int capacity) {
+        playershots.ensureCapacity(capacity);
+        enemyshots.ensureCapacity(capacity);
+    }
+
+    /**
+     * Number of shots each side has room for before its
+     * store has to grow.
+     * 
+     * @return capacity
+     */
+    public int getShotCapacity() {
+        return Math.min(playershots.getCapacity(), enemyshots.getCapacity());
+    }
+
+    /**
+     * Number of shots ever fired in the level, by both sides.
+     * 
+     * @return Shots fired
+     */
+    public long getShotsFired() {
+        return playershots.getAddedCount() + enemyshots.getAddedCount();
+    }
+
+    /**
+     * Number of times a shot store was full when a shot
+     * was fired, and had to grow.
+     * 
+     * @return Exhaustions
+     */
+    public long getShotExhaustions() {
+        return playershots.getExhaustionCount() + enemyshots.getExhaustionCount();
+    }
+
+    /**
+     * Room for shots the shot stores have allocated, from
+     * the start and every time they've grown.
+     * 
+     * @return Number of shots
+     */
+    public long getShotsAllocated() {
+        return playershots.getAllocatedCount() + enemyshots.getAllocatedCount();
+    }
+
+    /**
+     * Number of shots and pickables currently in the level,
+     * not counting those that have been reaped.
+     * 
+     * @return Number of entities
+     */
+    public int getEntityCount() {
+        return playershots.size() + enemyshots.size() + pickables.size();
+    }
+
     /**
      * Clears out the level
      */
     public void removeAll() {
-        enemies.clear();
+        // Give back the images to the image cache
+        for (int i = 0; i < index.size(); ++i) {
+            index.get(i).releaseImage();
+        }
+        for (Sprite sprite : pickables) {
+            sprite.releaseImage();
+        }
+        timers.clear();
+        index.clear();
+        spawns.clear();
+        nextspawn = 0;
+        spawnedfrom.clear();
+        retired.clear();
         enemyshots.clear();
         playershots.clear();
+        pickables.clear();
         offset = 0;
+        index.setOffset(0);
+    }
+
+    /**
+     * Lets go of everything the level holds: clears it out and
+     * gives back its sounds to the sound bank. The level can't
+     * play sounds afterwards.
+     */
+    public void dispose() {
+        removeAll();
+        soundplayer.close();
+        enemyupdater.shutdown();
+    }
+
+    /**
+     * Sets the number of threads the enemies are updated on.
+     * It makes no difference to the outcome, only to how long
+     * an update takes when there are many enemies.
+     * 
+     * @param threads Number of worker threads, 0 to update
+     *        the enemies on the calling thread
+     */
+    public synchronized void setUpdateThreads(int threads) {
+        enemyupdater.shutdown();
+        enemyupdater = new EnemyUpdater(threads);
+    }
+
+    /**
+     * Number of threads the enemies are updated on.
+     * 
+     * @return threads, 0 if they're updated on the calling thread
+     */
+    public int getUpdateThreads() {
+        return enemyupdater.getThreadCount();
+    }
+
+    /**
+     * Restarts the level's random numbers from a seed, arranges
+     * the scenery anew from it, and gives every enemy created so
+     * far a new source split off from it.
+     * Two levels with the same seed, fed the same way, play out
+     * exactly the same.
+     * 
+     * @param seed
+     */
+    public synchronized void setRandomSeed(long seed) {
+        random.setSeed(seed);
+        if (background != null) {
+            background.setRandom(random.split());
+        }
+        for (int i = 0; i < index.size(); ++i) {
+            index.get(i).setRandom(random.split());
+        }
+    }
+
+    /**
+     * Schedules a timer event some game time from now.
+     * 
+     * @param event
+     * @param millis Time until it's due, in milliseconds
+     */
+    public void schedule(TimerEvent event, long millis) {
+        CommandBuffer buffer = CommandBuffer.getCurrent();
+        if (buffer != null) {
+            buffer.schedule(event, millis);
+            return;
+        }
+        synchronized (this) {
+            timers.schedule(event, TimerWheel.toTicks(millis));
+        }
+    }
+
+    /**
+     * Cancels a timer event, if it's scheduled.
+     * 
+     * @param event
+     */
+    public void cancel(TimerEvent event) {
+        CommandBuffer buffer = CommandBuffer.getCurrent();
+        if (buffer != null) {
+            buffer.cancel(event);
+            return;
+        }
+        synchronized (this) {
+            event.cancel();
+        }
+    }
+
+    /**
+     * Number of timer events waiting to be fired.
+     * 
+     * @return Events
+     */
+    public int getTimerCount() {
+        return timers.size();
+    }
+
+    /**
+     * The tick the game clock is at.
+     */
+    private static long currentTick() {
+        return GameClock.getInstance().getMillis() / GameLoop.TICK_MILLIS;
+    }
+
+    /**
+     * Retrieves the level's source of random numbers.
+     * 
+     * @return RandomSource
+     */
+    public RandomSource getRandom() {
+        return random;
+    }
+
+    /**
+     * Sums up the state of everything in the level: the offset,
+     * the enemies, the shots and the pickables. Two levels that
+     * have played out the same way have the same checksum.
+     * 
+     * @return Checksum
+     */
+    public synchronized long checksum() {
+        long sum = offset;
+        for (int i = 0; i < index.size(); ++i) {
+            EnemyShip ship = index.get(i);
+            sum = sum * 31 + ship.getIntPositionX();
+            sum = sum * 31 + ship.getIntPositionY();
+            sum = sum * 31 + ship.getHealth();
+            sum = sum * 31 + (ship.isDestroyed() ? 1 : 0);
+            sum = sum * 31 + (ship.isActive() ? 1 : 0);
+        }
+        sum = sum * 31 + playershots.checksum();
+        sum = sum * 31 + enemyshots.checksum();
+        for (int i = 0; i < pickables.size(); ++i) {
+            Sprite sprite = pickables.get(i);
+            sum = sum * 31 + sprite.getIntPositionX();
+            sum = sum * 31 + sprite.getIntPositionY();
+        }
+        return sum;
     }
 
     /**
@@ -426,7 +1061,12 @@ public class Level implements Serializable {
      * @param keyname Key name of the loaded sound
      */
     public void playSound(String keyname) {
-        soundplayer.play(keyname);
+        CommandBuffer buffer = CommandBuffer.getCurrent();
+        if (buffer != null) {
+            buffer.playSound(keyname);
+        } else {
+            soundplayer.play(keyname);
+        }
     }
 
     /**
@@ -438,6 +1078,26 @@ public class Level implements Serializable {
         soundplayer.loopPlay(keyname);
     }
 
+    /**
+     * Loop plays a previously loaded sound, fading it in.
+     * 
+     * @param keyname Key name of the loaded sound
+     * @param millis Length of the fade
+     */
+    public void fadeInSound(String keyname, long millis) {
+        soundplayer.fadeIn(keyname, millis, Envelope.EQUAL_POWER);
+    }
+
+    /**
+     * Fades out a sound, and stops it.
+     * 
+     * @param keyname Key name of the loaded sound
+     * @param millis Length of the fade
+     */
+    public void fadeOutSound(String keyname, long millis) {
+        soundplayer.fadeOut(keyname, millis, Envelope.EQUAL_POWER);
+    }
+
     /**
      * Stops a particular sound from playing.
      * 
@@ -458,20 +1118,14 @@ public class Level implements Serializable {
     /**
      * Checks if the player has completed the level, which
      * means that there are no more waiting or active enemies.
+     * Enemies are counted as finished once they're done with
+     * their destruction animation, at the end of update().
      * 
      * @return True if the level is considered completed
      */
     public boolean isCompleted() {
-        int waiting = enemies.size();
-        for (EnemyShip ship : enemies) {
-            if (offset >= ship.getOffset() && ship.isDestroyed()) {
-                // Has it finished playing the destruction animation?
-                if (ship.getDestructAnimation().isDone()) {
-                    waiting--;
-                }
-            }
-        }
-        
+        int waiting = getPendingSpawnCount() + index.getPendingCount() + index.getActiveCount();
+
         // No more waiting objects, but have
         // we delayed the level enough?
         if (waiting == 0 && timestamp != null) {
@@ -486,17 +1140,70 @@ public class Level implements Serializable {
      * Recreates transient objects.
      */
     private void initTransientObjects() {
+        playershots = new ShotStore();
+        enemyshots = new ShotStore();
+        pickables = new EntityList<Sprite>();
+        enemygrid = new CollisionGrid<EnemyShip>(640, 480);
+        spritegrid = new CollisionGrid<Sprite>(640, 480);
+        imagereleaser = new EntityList.ReapListener<Sprite>() {
+
+            public void reaped(Sprite sprite) {
+                // Give back its image to the image cache
+                sprite.releaseImage();
+            }
+        };
         font = new Font("Courier New", Font.PLAIN, 10);
         healthfont = new Font("Arial", Font.PLAIN, 12);
-        soundplayer = new SoundPlayer(".");
+        soundplayer = SoundPlayer.create(".");
         timestamp = null;
+        spawns = new ArrayList<EnemySpawn>();
+        nextspawn = 0;
+        spawnedfrom = new IdentityHashMap<EnemyShip, EnemySpawn>();
+        retired = new ArrayList<EnemySpawn>();
+        keepall = false;
+        index = new EnemyIndex();
+        enemyupdater = new EnemyUpdater(0);
+        random = new RandomSource();
+        timers = new TimerWheel(currentTick());
     }
 
     /**
-     * Does a normal serialization of the object.
+     * Does a normal serialization of the object. The old
+     * format holds every enemy, so those saved as spawns are
+     * created just for the occasion, and let go of afterwards.
      */
-    private void writeObject(ObjectOutputStream out) throws IOException {
-        out.defaultWriteObject();
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        enemies = new Vector<EnemyShip>();
+        ArrayList<EnemyShip> created = new ArrayList<EnemyShip>();
+        ArrayList<EnemySpawn> saved = new ArrayList<EnemySpawn>();
+        for (int i = 0; i < index.size(); ++i) {
+            EnemyShip ship = index.get(i);
+            EnemySpawn spawn = getSavedSpawn(ship);
+            if (spawn == null) {
+                enemies.add(ship);
+            } else {
+                saved.add(spawn);
+            }
+        }
+        for (int i = nextspawn; i < spawns.size(); ++i) {
+            saved.add(spawns.get(i));
+        }
+        saved.addAll(retired);
+        for (EnemySpawn spawn : saved) {
+            EnemyShip ship = create(spawn);
+            if (ship != null) {
+                enemies.add(ship);
+                created.add(ship);
+            }
+        }
+        try {
+            out.defaultWriteObject();
+        } finally {
+            enemies = null;
+            for (EnemyShip ship : created) {
+                ship.releaseImage();
+            }
+        }
     }
 
     /**
@@ -514,6 +1221,15 @@ public class Level implements Serializable {
         // where the level editor last stood
         offset = 0;
 
+        // Sort the enemies into the index
+        if (enemies != null) {
+            for (EnemyShip ship : enemies) {
+                ship.setRandom(random.split());
+                index.add(ship);
+            }
+            enemies = null;
+        }
+
         // We always start in normal mode (as in NOT level editor mode)
         editormode = false;
     }
@@ -0,0 +1,61 @@
+package projectuml;
+
+import java.io.*;
+
+/**
+ * LevelConverter
+ *
+ * Converts levels saved as serialized objects (".level"-files) to
+ * the binary LevelFormat. The converted level is saved next to the
+ * old one, with the extension changed. Without arguments every
+ * ".level"-file in the current directory is converted.
+ * Loading an old level loads its images, so run it from the
+ * directory holding them, preferably with java.awt.headless=true:
+ *
+ *   java -Djava.awt.headless=true projectuml.LevelConverter [file.level ...]
+ *
+ * @see LevelFormat
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class LevelConverter {
+
+    public static void main(String[] args) {
+        String[] filenames = args;
+        if (filenames.length == 0) {
+            filenames = new File(".").list(new FilenameFilter() {
+
+                public boolean accept(File dir, String name) {
+                    return LevelLoader.isLegacy(name);
+                }
+            });
+        }
+
+        GeneralSerializer<Level> serializer = new GeneralSerializer<Level>();
+        LevelFormat format = new LevelFormat();
+        int failures = 0;
+        for (String filename : filenames) {
+            String converted = filename;
+            if (LevelLoader.isLegacy(filename)) {
+                converted = filename.substring(0, filename.length() - LevelLoader.LEGACY_EXTENSION.length());
+            }
+            converted += LevelFormat.EXTENSION;
+
+            System.out.print("Converting " + filename + " to " + converted + "...");
+            Level level = serializer.load(filename);
+            if (level == null) {
+                System.out.println("couldn't load it!");
+                failures++;
+                continue;
+            }
+            try {
+                format.write(level, converted);
+                System.out.println("OK (" + level.getShipCount() + " enemies)");
+            } catch (IOException ex) {
+                System.out.println(ex.getMessage());
+                failures++;
+            }
+            level.removeAll();
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -18,7 +18,7 @@ import javax.swing.*;
 public final class LevelEditor extends GameState {
 
     private EnemyFactory enemyfactory;
-    private GeneralSerializer<Level> levelloader;
+    private LevelLoader levelloader;
     private Level level;
     private Font smallfont;
     private PlayerShip playership;
@@ -42,6 +42,7 @@ public final class LevelEditor extends GameState {
     private boolean showhelp;
     private boolean update;
     private boolean unsavedchanges;
+    private boolean ownslevel; // True if we created the level ourselves
     private Hashtable<Integer, EditorCommandID> keys;
     private EditorCommandID activecommand;
 
@@ -60,15 +61,18 @@ public final class LevelEditor extends GameState {
     public LevelEditor(Level level) {
         this.level = level;
         enemyfactory = new EnemyFactory();
-        levelloader = new GeneralSerializer<Level>();
+        levelloader = new LevelLoader();
         smallfont = new Font("Courier New", Font.PLAIN, 12);
         showhelp = true;
         update = false;
         unsavedchanges = false;
+        ownslevel = false;
 
-        // Level editor mode is ON by default
+        // Level editor mode is ON by default, and
+        // every enemy must be at hand to be edited
         if (level != null) {
             level.setEditorMode(true);
+            level.materializeAll();
         }
 
         // Fake a playership since we're not using it here,
@@ -287,9 +291,13 @@ public final class LevelEditor extends GameState {
                             break;
                         }
                     }
-                    // Turn off level editor mode
+                    // Turn off level editor mode, and let go of
+                    // the level unless it's the game's
                     if (level != null) {
                         level.setEditorMode(false);
+                        if (ownslevel) {
+                            level.dispose();
+                        }
                     }
                     removeMe();
                     break;
@@ -314,6 +322,8 @@ public final class LevelEditor extends GameState {
                     } else {
                         level = new Level();
                         level.setEditorMode(showhelp);
+                        level.materializeAll();
+                        ownslevel = true;
                     }
                     unsavedchanges = false;
                     break;
@@ -368,9 +378,15 @@ public final class LevelEditor extends GameState {
                 case LOAD: {
                     File path = browse("Load level");
                     if (path != null) {
-                        level = levelloader.load(path.getAbsolutePath());
-                        if (level != null) {
+                        Level loaded = levelloader.load(path.getAbsolutePath());
+                        if (loaded != null) {
+                            if (level != null && ownslevel) {
+                                level.dispose();
+                            }
+                            level = loaded;
                             level.setEditorMode(showhelp);
+                            level.materializeAll();
+                            ownslevel = true;
                         } else {
                             showMessage("Couldn't load " + path.getAbsolutePath() + "!");
                         }
@@ -491,7 +507,8 @@ public final class LevelEditor extends GameState {
                     EnemyShip ship = level.getShipAt(event.getPoint());
                     if (ship != null) {
                         int newoffset = askForValue("New offset", ship.getOffset());
-                        ship.setOffset(newoffset);
+                        level.setShipOffset(ship, newoffset);
+                        unsavedchanges = true;
                     }
                     break;
                 }
@@ -0,0 +1,261 @@
+package projectuml;
+
+import java.awt.Point;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * LevelFormat
+ *
+ * Reads and writes levels in a compact binary format, instead of
+ * serializing the whole level with all its objects. Only what's
+ * needed to recreate the level is stored: the scenery's parameters
+ * and, for every enemy, its type, offset, health, position and path.
+ * Everything else (images, weapons, gunners) follows from the enemy
+ * type, and is recreated by the EnemyFactory when the level gets
+ * close to the enemy. Reading a level only creates spawns.
+ *
+ * The layout, all numbers big-endian:
+ *   int    MAGIC
+ *   short  VERSION
+ *   byte   scenery tag (SCENERY_NONE, SCENERY_STARFIELD)
+ *          followed by int amount of stars for a star field
+ *   int    number of enemies, then for each enemy:
+ *     string type (short length + UTF-8 bytes)
+ *     int    offset, health, max health, x, y
+ *     byte   1 if the path is cyclic
+ *     int    number of path points, then x and y for each point
+ *            and, from version 2, a byte with the kind of the point
+ *            (Path.Kind ordinal)
+ *
+ * Levels are written to a buffered stream and read from a
+ * memory-mapped file, front to back.
+ *
+ * @see Level
+ * @see LevelLoader
+ * @see EnemySpawn
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class LevelFormat {
+
+    public static final String EXTENSION = ".lvl";
+    private static final int MAGIC = 0x554D4C4C; // "UMLL"
+    private static final short VERSION = 2;
+    private static final byte SCENERY_NONE = 0;
+    private static final byte SCENERY_STARFIELD = 1;
+    private static final int MAX_STARS = 640 * 480;
+    private EnemyFactory enemyfactory;
+
+    /**
+     * Creates a reader/writer of levels.
+     */
+    public LevelFormat() {
+        enemyfactory = new EnemyFactory();
+    }
+
+    /**
+     * Writes a level to file.
+     * 
+     * @param level Level to save
+     * @param filename Path to file
+     * @throws IOException If the file couldn't be written, or if
+     *         the level holds an enemy of unknown type
+     */
+    public void write(Level level, String filename) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeScenery(out, level.getScenery());
+
+            java.util.List<EnemySpawn> spawns = level.getSpawns();
+            out.writeInt(spawns.size());
+            for (EnemySpawn spawn : spawns) {
+                writeSpawn(out, spawn);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a level from file.
+     * 
+     * @param filename Path to file
+     * @return Level
+     * @throws IOException If the file couldn't be read, or isn't a level
+     */
+    public Level read(String filename) throws IOException {
+        ByteBuffer in = map(filename);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException(filename + " isn't a level");
+            }
+            short version = in.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException(filename + " has unsupported version " + version);
+            }
+
+            Level level = new Level();
+            level.setScenery(readScenery(in, level.getRandom()));
+            int ships = readCount(in, 1);
+            for (int i = 0; i < ships; ++i) {
+                level.addSpawn(readSpawn(in, version));
+            }
+            return level;
+        } catch (BufferUnderflowException ex) {
+            throw new IOException(filename + " is truncated");
+        }
+    }
+
+    /**
+     * Reads the number of things that follow, and checks that
+     * it isn't negative and that there's enough left of the
+     * file for that many, before it's used to size anything.
+     *
+     * @param in
+     * @param size Least number of bytes each thing takes
+     * @return Count
+     * @throws IOException If the count is corrupt
+     */
+    private int readCount(ByteBuffer in, int size) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || (long) count * size > in.remaining()) {
+            throw new IOException("Count " + count + " is corrupt");
+        }
+        return count;
+    }
+
+    /**
+     * Maps a whole file into memory.
+     * 
+     * @param filename Path to file
+     * @return Buffer positioned at the beginning of the file
+     * @throws IOException
+     */
+    private ByteBuffer map(String filename) throws IOException {
+        FileInputStream file = new FileInputStream(filename);
+        try {
+            FileChannel channel = file.getChannel();
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Writes the parameters of a scenery.
+     */
+    private void writeScenery(DataOutputStream out, Scenery scenery) throws IOException {
+        if (scenery instanceof StarField) {
+            out.writeByte(SCENERY_STARFIELD);
+            out.writeInt(((StarField) scenery).getAmount());
+        } else {
+            if (scenery != null) {
+                System.err.println("Scenery " + scenery.getClass().getName() + " can't be saved, skipping it");
+            }
+            out.writeByte(SCENERY_NONE);
+        }
+    }
+
+    /**
+     * Recreates a scenery from its parameters.
+     */
+    private Scenery readScenery(ByteBuffer in, RandomSource random) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case SCENERY_NONE:
+                return null;
+            case SCENERY_STARFIELD:
+                int amount = in.getInt();
+                // More than a star per pixel makes no sense
+                if (amount < 0 || amount > MAX_STARS) {
+                    throw new IOException("Amount of stars " + amount + " is corrupt");
+                }
+                return new StarField(amount, random);
+            default:
+                throw new IOException("Unknown scenery " + tag);
+        }
+    }
+
+    /**
+     * Writes an enemy.
+     */
+    private void writeSpawn(DataOutputStream out, EnemySpawn spawn) throws IOException {
+        if (spawn.getType() == null) {
+            throw new IOException("Enemy at " + spawn.getX() + "," + spawn.getY() + " is of unknown type");
+        }
+        writeString(out, spawn.getType());
+        out.writeInt(spawn.getOffset());
+        out.writeInt(spawn.getHealth());
+        out.writeInt(spawn.getMaxHealth());
+        out.writeInt(spawn.getX());
+        out.writeInt(spawn.getY());
+
+        out.writeBoolean(spawn.isCyclic());
+        out.writeInt(spawn.getPointCount());
+        for (int i = 0; i < spawn.getPointCount(); ++i) {
+            Point point = spawn.getPoint(i);
+            out.writeInt(point.x);
+            out.writeInt(point.y);
+            out.writeByte(spawn.getKind(i).ordinal());
+        }
+    }
+
+    /**
+     * Reads an enemy into a spawn, to be created by the level
+     * when it's needed.
+     */
+    private EnemySpawn readSpawn(ByteBuffer in, short version) throws IOException {
+        String type = readString(in);
+        if (!enemyfactory.contains(type)) {
+            throw new IOException("Unknown enemy type " + type);
+        }
+        int offset = in.getInt();
+        int health = in.getInt();
+        int maxhealth = in.getInt();
+        int x = in.getInt();
+        int y = in.getInt();
+
+        boolean cyclic = in.get() != 0;
+        int points = readCount(in, version >= 2 ? 9 : 8);
+        int[] pathx = new int[points];
+        int[] pathy = new int[points];
+        Path.Kind[] pathkinds = new Path.Kind[points];
+        Path.Kind[] kinds = Path.Kind.values();
+        for (int i = 0; i < points; ++i) {
+            pathx[i] = in.getInt();
+            pathy[i] = in.getInt();
+            pathkinds[i] = Path.Kind.LINE;
+            if (version >= 2) {
+                byte kind = in.get();
+                if (kind < 0 || kind >= kinds.length) {
+                    throw new IOException("Unknown path point kind " + kind);
+                }
+                pathkinds[i] = kinds[kind];
+            }
+        }
+        return new EnemySpawn(type, offset, health, maxhealth, x, y, cyclic, pathx, pathy, pathkinds);
+    }
+
+    /**
+     * Writes a string as its length followed by UTF-8 bytes.
+     */
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes("UTF-8");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString().
+     */
+    private String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[in.getShort() & 0xffff];
+        in.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,89 @@
+package projectuml;
+
+import java.io.*;
+
+/**
+ * LevelLoader
+ *
+ * Loads and saves levels, picking the file format by the file's
+ * extension: ".level"-files are serialized Java objects (the old
+ * format), everything else is written in the binary LevelFormat.
+ * Errors are reported on stderr, just like GeneralSerializer does.
+ * The classes stored in ".level"-files pin their serialVersionUID
+ * to the value computed for them before they were changed, so that
+ * old files still load.
+ *
+ * @see LevelFormat
+ * @see GeneralSerializer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class LevelLoader {
+
+    public static final String LEGACY_EXTENSION = ".level";
+    private GeneralSerializer<Level> serializer;
+    private LevelFormat format;
+
+    /**
+     * Creates the loader.
+     */
+    public LevelLoader() {
+        serializer = new GeneralSerializer<Level>();
+        format = new LevelFormat();
+    }
+
+    /**
+     * Checks if a file is a level, by its extension.
+     * 
+     * @param filename
+     * @return True if it's a level in either format
+     */
+    public static boolean isLevel(String filename) {
+        return filename.endsWith(LevelFormat.EXTENSION) || isLegacy(filename);
+    }
+
+    /**
+     * Checks if a file is a level in the old format.
+     * 
+     * @param filename
+     * @return True if it's a serialized level
+     */
+    public static boolean isLegacy(String filename) {
+        return filename.endsWith(LEGACY_EXTENSION);
+    }
+
+    /**
+     * Loads a level from file.
+     * 
+     * @param filename Path to file
+     * @return Level, or null if it couldn't be loaded
+     */
+    public Level load(String filename) {
+        if (isLegacy(filename)) {
+            return serializer.load(filename);
+        }
+        try {
+            return format.read(filename);
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves a level to file.
+     * 
+     * @param level Level to save
+     * @param filename Path to file
+     */
+    public void save(Level level, String filename) {
+        if (isLegacy(filename)) {
+            serializer.save(level, filename);
+            return;
+        }
+        try {
+            format.write(level, filename);
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+        }
+    }
+}
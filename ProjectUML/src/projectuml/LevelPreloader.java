@@ -0,0 +1,193 @@
+package projectuml;
+
+import java.util.concurrent.*;
+
+/**
+ * LevelPreloader
+ *
+ * Loads a level in the background while another one is played, so
+ * that switching levels doesn't freeze the game. The level is read
+ * and its sounds are opened. Its enemies are only created once the
+ * level gets close to them, but the images of every type of enemy
+ * in it are decoded up front, see Level.warmUp(). Only one level
+ * is preloaded at a time.
+ * A level that's cancelled, or never taken, is disposed of.
+ *
+ * @see GameRunning
+ * @see LevelLoader
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class LevelPreloader {
+
+    private ExecutorService executor;
+    private LevelLoader loader;
+    private LoadTask task;         // Level being loaded, or null
+    private Future<Level> pending; // Result of the task
+
+    /**
+     * Loads a single level, unless it's cancelled.
+     */
+    private class LoadTask implements Callable<Level> {
+
+        private String filename;
+        private boolean cancelled;
+        private Level loaded; // Level handed to the future
+
+        public LoadTask(String filename) {
+            this.filename = filename;
+            cancelled = false;
+        }
+
+        public Level call() {
+            synchronized (this) {
+                if (cancelled) {
+                    return null;
+                }
+            }
+            System.out.println("Preloading level " + filename + "...");
+            Level level = loader.load(filename);
+            if (level != null) {
+                level.warmUp();
+            }
+            synchronized (this) {
+                // Cancelled while we were loading? Nobody's
+                // going to take it, so let go of it at once
+                if (cancelled) {
+                    if (level != null) {
+                        level.dispose();
+                    }
+                    return null;
+                }
+                loaded = level;
+                return level;
+            }
+        }
+
+        /**
+         * Cancels the task. Whichever of this and call() comes
+         * last disposes of the level, so it's never lost.
+         *
+         * @return The level already loaded, which nobody is
+         *         going to take, or null
+         */
+        public synchronized Level cancel() {
+            cancelled = true;
+            Level level = loaded;
+            loaded = null;
+            return level;
+        }
+    }
+
+    /**
+     * Creates a preloader with a background thread of its own.
+     */
+    public LevelPreloader() {
+        loader = new LevelLoader();
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Level preloader");
+                // Don't keep the game alive just to load a level
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts loading a level in the background. A level already
+     * being preloaded is cancelled.
+     *
+     * @param filename Path to level file
+     */
+    public synchronized void prefetch(String filename) {
+        cancel();
+        task = new LoadTask(filename);
+        pending = executor.submit(task);
+    }
+
+    /**
+     * Checks if a level is being preloaded, or is ready to be taken.
+     *
+     * @return True if there's a level to take
+     */
+    public synchronized boolean isPending() {
+        return pending != null;
+    }
+
+    /**
+     * Checks if the preloaded level has finished loading, so
+     * that take() won't have to wait.
+     *
+     * @return True if it's ready
+     */
+    public synchronized boolean isReady() {
+        return pending != null && pending.isDone();
+    }
+
+    /**
+     * Name of the level being preloaded.
+     *
+     * @return Path to level file, or null
+     */
+    public synchronized String getFilename() {
+        return task != null ? task.filename : null;
+    }
+
+    /**
+     * Hands over the preloaded level, waiting for it to finish
+     * loading if need be. The preloader is empty afterwards.
+     *
+     * @return Level, or null if there wasn't one or it couldn't be loaded
+     */
+    public Level take() {
+        Future<Level> result;
+        synchronized (this) {
+            result = pending;
+            pending = null;
+            task = null;
+        }
+        if (result == null) {
+            return null;
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            System.err.println("Preloading failed: " + ex.getCause());
+            return null;
+        } catch (CancellationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Cancels the level being preloaded. If it has already
+     * been loaded, it's disposed of.
+     */
+    public synchronized void cancel() {
+        if (pending == null) {
+            return;
+        }
+        // Not interrupting, the task cleans up after itself
+        // if it's still loading
+        Level level = task.cancel();
+        pending.cancel(false);
+        if (level != null) {
+            level.dispose();
+        }
+        pending = null;
+        task = null;
+    }
+
+    /**
+     * Cancels any preloading and stops the background thread.
+     */
+    public synchronized void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,46 @@
+package projectuml;
+
+import javax.sound.sampled.*;
+
+/**
+ * LineSink
+ * 
+ * Plays mixed sound on the sound card, through a SourceDataLine.
+ * Writing blocks while the line's buffer is full, which keeps
+ * the mixer in pace with the sound card.
+ *
+ * @see SoundMixer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class LineSink implements SoundSink {
+
+    private int buffersize;
+    private SourceDataLine line;
+
+    /**
+     * Creates a sink with a certain latency.
+     * 
+     * @param buffersize Size of the line's buffer in bytes
+     */
+    public LineSink(int buffersize) {
+        this.buffersize = buffersize;
+    }
+
+    public void open(AudioFormat format) throws LineUnavailableException {
+        line = AudioSystem.getSourceDataLine(format);
+        line.open(format, buffersize);
+        line.start();
+    }
+
+    public void write(byte[] data, int length) {
+        line.write(data, 0, length);
+    }
+
+    public void close() {
+        if (line != null) {
+            line.drain();
+            line.close();
+            line = null;
+        }
+    }
+}
@@ -2,7 +2,7 @@ package projectuml;
 
 import java.awt.event.*;
 import java.awt.Graphics2D;
-import java.util.*;
+import java.io.File;
 
 /**
  * MainGame
@@ -18,9 +18,8 @@ public class MainGame implements KeyListener, MouseListener, MouseMotionListener
 
     private GameWindow gamewindow;
     private GameStates gamestates;
-    private Timer timer;
+    private GameLoop gameloop;
     private Player player;
-    private final long LOGIC_INTERVAL = 34;
 
     /**
      * Startup method.
@@ -35,9 +34,14 @@ public class MainGame implements KeyListener, MouseListener, MouseMotionListener
      * Initiates the game.
      */
     public MainGame() {
+        // Pack all sprite images together before anything loads them
+        ImageCache.getInstance().setAtlas(
+                SpriteAtlas.build(new File("."), SpriteAtlas.DEFAULT_PAGE_SIZE));
+        // Load the animations once, up front
+        AnimationRegistry.getInstance();
+
         gamewindow = new GameWindow("Project U.M.L.");
         gamestates = new GameStates();
-        timer = new Timer();
 
         // Create the player!
         player = new Player();
@@ -51,11 +55,14 @@ public class MainGame implements KeyListener, MouseListener, MouseMotionListener
         // Push the first game state
         gamestates.change(new MainMenu());
 
-        // Add logic - updates at a fixed interval
-        timer.scheduleAtFixedRate(new LogicTask(), 0, LOGIC_INTERVAL);
+        if (gamewindow.getDrawListenerCount() == 0) {
+            System.err.println("---  Warning: no drawlistener registered!  ---");
+        }
 
-        // Start the game
-        gamewindow.run();
+        // Start the game - updates the logic at a fixed
+        // interval and renders as often as it can
+        gameloop = new GameLoop(gamestates, player, gamewindow);
+        gameloop.start();
     }
 
     /**  Various events **/
@@ -103,8 +110,8 @@ public class MainGame implements KeyListener, MouseListener, MouseMotionListener
     /**
      * Redraws the states
      **/
-    public synchronized void draw(Graphics2D g) {
-        gamestates.draw(g);
+    public void draw(Graphics2D g) {
+        gamestates.draw(g, gamewindow.getInterpolation());
     }
 
     public void windowOpened(WindowEvent e) {
@@ -140,14 +147,4 @@ public class MainGame implements KeyListener, MouseListener, MouseMotionListener
     /** Not used **/
     public void windowDeactivated(WindowEvent e) {
     }
-
-    /**
-     * Updates the states at a fixed interval
-     */
-    private class LogicTask extends TimerTask {
-
-        public void run() {
-            gamestates.update(player);
-        }
-    }
 }
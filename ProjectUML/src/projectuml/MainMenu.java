@@ -39,7 +39,7 @@ public class MainMenu extends GameState {
         credits.fadeIn(2);
 
         // Load theme sound and play it!
-        sound = new SoundPlayer();
+        sound = SoundPlayer.create(null);
         sound.loadSound("mainmenu.wav");
 
         // Record the current time
@@ -110,16 +110,16 @@ public class MainMenu extends GameState {
     }
 
     /**
-     * We've lost focus, pause our music.
+     * We've lost focus, fade out our music.
      */
     public void lostFocus() {
-        sound.stop("mainmenu");
+        sound.fadeOut("mainmenu", SoundPlayer.TRANSITION_MILLIS, Envelope.EQUAL_POWER);
     }
 
     /**
-     * We've gained focus, resume our music.
+     * We've gained focus, fade in our music.
      */
     public void gainedFocus() {
-        sound.loopPlay("mainmenu");
+        sound.fadeIn("mainmenu", SoundPlayer.TRANSITION_MILLIS, Envelope.EQUAL_POWER);
     }
 }
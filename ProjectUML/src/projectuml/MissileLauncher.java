@@ -6,7 +6,9 @@ import java.awt.*;
  * MissileLauncher
  * 
  * Employs a cool down timer so that the number of rounds
- * per minute is restricted. 
+ * per minute is restricted. The cooldown is a timer event
+ * scheduled on the level, and the launcher can fire again
+ * once it's no longer waiting.
  * When fired it creates missile shots in the level.
  * 
  * @see Weapon
@@ -15,11 +17,12 @@ import java.awt.*;
  */
 public class MissileLauncher extends Weapon {
 
+    private static final long serialVersionUID = -5685946318372206833L;
     private final int DAMAGE = 500;    // Shot damage
     private final int DX = 5;          // Shot movement, x-axis
     private final int DY = 0;
     private final int COOLDOWN = 1000; // Cooldown for weapon in seconds
-    private Timestamp timestamp;
+    transient private TimerEvent cooldown;
 
     /**
      * Create missile launcher at given point and
@@ -35,8 +38,6 @@ public class MissileLauncher extends Weapon {
         }else{
             setShotImageFile("missileshot_enemy.png");
         }
-
-        timestamp = new Timestamp();
     }
 
     /**
@@ -50,25 +51,37 @@ public class MissileLauncher extends Weapon {
 
     /**
      * Overridden fire method
-     * Uses a timer to check if weapons cooldown time has passed.
+     * Only fires if the weapon isn't cooling down.
      */
     public void fire(Level level, Sprite sprite) {
-        if (timestamp.havePassed(COOLDOWN)) {
-            Point position = (Point) getPosition().clone();
+        if (!getCooldown().isScheduled()) {
             // Translate position over the sprite that owns the weapon
-            position.translate(sprite.getIntPositionX(), sprite.getIntPositionY());
-            Shot shot = new Shot(DAMAGE, position, getShotImageFile());
+            int x = getPosition().x + sprite.getIntPositionX();
+            int y = getPosition().y + sprite.getIntPositionY();
 
             if (isPlayer()) {
-                shot.setDx(DX);
-                level.addPlayerShot(shot);
+                level.addPlayerShot(DAMAGE, DX, DY, x, y, getShotImageFile());
             } else {
-                shot.setDx(DX * -1);
-                level.addEnemyShot(shot);
+                level.addEnemyShot(DAMAGE, DX * -1, DY, x, y, getShotImageFile());
             }
             level.playSound("missileshot");
-            timestamp.reset();
+            level.schedule(cooldown, COOLDOWN);
+        }
+    }
+
+    /**
+     * The event that ends the cooldown. It has
+     * nothing to do, but to be waiting.
+     */
+    private TimerEvent getCooldown() {
+        if (cooldown == null) {
+            cooldown = new TimerEvent() {
+
+                public void fire(Level level) {
+                }
+            };
         }
+        return cooldown;
     }
 
     public void playSound() {
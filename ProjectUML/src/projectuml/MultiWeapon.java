@@ -1,7 +1,5 @@
 package projectuml;
 
-import java.awt.Point;
-
 /**
  * MultiWeapon 
  * 
@@ -25,9 +23,11 @@ public class MultiWeapon extends Weapon {
      * @param sprite
      */
     public void fire(Level level, Sprite sprite) {
-        level.addEnemyShot(new Shot(50, -5, 5, new Point(sprite.getPosition()), getShotImageFile()));
-        level.addEnemyShot(new Shot(100, -5, -5, new Point(sprite.getPosition()), getShotImageFile()));
-        level.addEnemyShot(new Shot(50, -5, 0, new Point(sprite.getPosition()), getShotImageFile()));
+        int x = sprite.getIntPositionX();
+        int y = sprite.getIntPositionY();
+        level.addEnemyShot(50, -5, 5, x, y, getShotImageFile());
+        level.addEnemyShot(100, -5, -5, x, y, getShotImageFile());
+        level.addEnemyShot(50, -5, 0, x, y, getShotImageFile());
         level.playSound("shot1");
     }
 }
@@ -0,0 +1,63 @@
+package projectuml;
+
+import java.io.ByteArrayOutputStream;
+import javax.sound.sampled.*;
+
+/**
+ * OfflineSink
+ * 
+ * Receives mixed sound without playing it, so that the mixer can
+ * be run headless. The sound is either kept in memory, to be looked
+ * at afterwards, or just counted and thrown away.
+ *
+ * @see SoundMixer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class OfflineSink implements SoundSink {
+
+    private boolean keep;
+    private ByteArrayOutputStream buffer;
+    private long written;
+
+    /**
+     * Creates an offline sink.
+     * 
+     * @param keep True to keep the sound, false to throw it away
+     */
+    public OfflineSink(boolean keep) {
+        this.keep = keep;
+        buffer = new ByteArrayOutputStream();
+        written = 0;
+    }
+
+    public void open(AudioFormat format) {
+    }
+
+    public void write(byte[] data, int length) {
+        if (keep) {
+            buffer.write(data, 0, length);
+        }
+        written += length;
+    }
+
+    public void close() {
+    }
+
+    /**
+     * Retrieves the sound received so far, if it's kept.
+     * 
+     * @return Mixed sound, in the mixer's format
+     */
+    public byte[] getBytes() {
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Number of bytes received so far.
+     * 
+     * @return Bytes
+     */
+    public long getBytesWritten() {
+        return written;
+    }
+}
@@ -10,15 +10,37 @@ import java.util.*;
  * A path that a ship follows. A cyclic path is
  * a path that returns to the first point when it
  * reaches the end.
+ * Each point is of a kind. The path goes straight on
+ * from a LINE point to the next point, and curves
+ * through a CURVE point and the points around it.
+ * CONTROL points aren't passed at all, they pull the
+ * path between the points before and after them into
+ * a Bezier curve.
+ * The path is laid out in a table when it's loaded or
+ * first followed, and again only after it has changed.
+ * Points retrieved from the path mustn't be moved
+ * directly, since the table wouldn't know of it.
  *
+ * @see PathTable
+ * @see PathTrack
  * @author Jens Thuresson, Steve Eriksson
  */
 public class Path implements Serializable {
 
     private static final long serialVersionUID = 1L;
     private ArrayList<Point> pathlist;
+    private ArrayList<Kind> kindlist; // Kind of each point
     private boolean cyclic;
     private int current;
+    transient private volatile PathTable table; // Laid out path, or null
+
+    /**
+     * How the path goes on from a point.
+     */
+    public enum Kind {
+
+        LINE, CURVE, CONTROL
+    };
 
     /**
      * Creates an empty path.
@@ -27,6 +49,7 @@ public class Path implements Serializable {
      */
     public Path(boolean cyclic) {
         pathlist = new ArrayList<Point>();
+        kindlist = new ArrayList<Kind>();
         current = -1;
         this.cyclic = cyclic;
     }
@@ -55,7 +78,59 @@ public class Path implements Serializable {
      * @param point Position
      */
     public void addPoint(Point point) {
+        addPoint(point, Kind.LINE);
+    }
+
+    /**
+     * Adds a point of a certain kind to the path.
+     * 
+     * @param point Position
+     * @param kind How the path goes on from the point
+     */
+    public void addPoint(Point point, Kind kind) {
         pathlist.add(point);
+        kindlist.add(kind);
+        table = null;
+    }
+
+    /**
+     * Number of points in the path.
+     * 
+     * @return Number of points
+     */
+    public int getPointCount() {
+        return pathlist.size();
+    }
+
+    /**
+     * Retrieves a point on the path.
+     * 
+     * @param index Between 0 and the number of points
+     * @return Point
+     */
+    public Point getPoint(int index) {
+        return pathlist.get(index);
+    }
+
+    /**
+     * Retrieves the kind of a point on the path.
+     * 
+     * @param index Between 0 and the number of points
+     * @return Kind
+     */
+    public Kind getKind(int index) {
+        return kindlist.get(index);
+    }
+
+    /**
+     * Changes the kind of a point on the path.
+     * 
+     * @param index Between 0 and the number of points
+     * @param kind How the path goes on from the point
+     */
+    public void setKind(int index, Kind kind) {
+        kindlist.set(index, kind);
+        table = null;
     }
 
     /**
@@ -64,6 +139,8 @@ public class Path implements Serializable {
     public void removeLast() {
         if (!pathlist.isEmpty()) {
             pathlist.remove(pathlist.size() - 1);
+            kindlist.remove(kindlist.size() - 1);
+            table = null;
         }
     }
 
@@ -90,6 +167,22 @@ public class Path implements Serializable {
      */
     public void setCyclic(boolean cyclic) {
         this.cyclic = cyclic;
+        table = null;
+    }
+
+    /**
+     * Retrieves the path laid out as a table, which
+     * is only done again after the path has changed.
+     * 
+     * @return PathTable
+     */
+    public PathTable getTable() {
+        PathTable laidout = table;
+        if (laidout == null) {
+            laidout = new PathTable(this);
+            table = laidout;
+        }
+        return laidout;
     }
 
     /**
@@ -97,6 +190,8 @@ public class Path implements Serializable {
      */
     public void removeAll() {
         pathlist.clear();
+        kindlist.clear();
+        table = null;
     }
 
     /**
@@ -109,6 +204,7 @@ public class Path implements Serializable {
         for (Point point : pathlist) {
             point.translate(deltax, deltay);
         }
+        table = null;
     }
 
     /**
@@ -147,6 +243,8 @@ public class Path implements Serializable {
 
     /**
      * Does a normal serialization AND resets the current postition.
+     * Paths saved before points had kinds are made of lines.
+     * The path is laid out at once, so that it's ready to follow.
      * 
      * @param in Stream to read from
      * @throws java.io.IOException
@@ -154,6 +252,13 @@ public class Path implements Serializable {
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        if (kindlist == null) {
+            kindlist = new ArrayList<Kind>();
+        }
+        while (kindlist.size() < pathlist.size()) {
+            kindlist.add(Kind.LINE);
+        }
         reset();
+        getTable();
     }
 }
@@ -9,7 +9,10 @@ import javax.swing.*;
 /**
  * PathEditor
  * 
- * An editor for paths.
+ * An editor for paths. Points are added either as lines or as
+ * curves, and control points bend the path between the points
+ * around them. The path is drawn as it's laid out for the ships
+ * that follow it.
  *
  * @author Jens Thuresson, Steve Eriksson
  */
@@ -18,12 +21,13 @@ public class PathEditor extends GameState {
     private Path path;
     private Font smallfont;
     private boolean showhelp;
+    private Path.Kind kind; // Kind of the points added
     private GeneralSerializer<Path> pathloader;
     // Available editor commands
     private enum EditorCommandID {
 
         NEW, SAVE, LOAD,
-        TOGGLE_HELP, TOGGLE_CYCLIC,
+        TOGGLE_HELP, TOGGLE_CYCLIC, TOGGLE_CURVE,
         CLEAR_ALL,
         MOVE_PATH_UP, MOVE_PATH_DOWN,
         MOVE_PATH_RIGHT, MOVE_PATH_LEFT,
@@ -48,6 +52,7 @@ public class PathEditor extends GameState {
         keys = new Hashtable<Integer, EditorCommandID>();
         smallfont = new Font("Courier New", Font.PLAIN, 12);
         showhelp = true;
+        kind = Path.Kind.LINE;
         pathloader = new GeneralSerializer<Path>();
         bindKeys();
     }
@@ -61,6 +66,7 @@ public class PathEditor extends GameState {
         keys.put(KeyEvent.VK_L, EditorCommandID.LOAD);
         keys.put(KeyEvent.VK_S, EditorCommandID.SAVE);
         keys.put(KeyEvent.VK_C, EditorCommandID.TOGGLE_CYCLIC);
+        keys.put(KeyEvent.VK_V, EditorCommandID.TOGGLE_CURVE);
         keys.put(KeyEvent.VK_H, EditorCommandID.TOGGLE_HELP);
         keys.put(KeyEvent.VK_DELETE, EditorCommandID.CLEAR_ALL);
         keys.put(KeyEvent.VK_UP, EditorCommandID.MOVE_PATH_UP);
@@ -106,9 +112,16 @@ public class PathEditor extends GameState {
             y += smallfont.getSize();
         }
 
+        if (kind == Path.Kind.CURVE) {
+            g.setColor(Color.magenta);
+            y = println(g, "Adding curves", 0, y);
+            y += smallfont.getSize();
+        }
+
         // General help commands
         g.setColor(Color.white);
         y = println(g, "Left mouse button adds point", 0, y);
+        y = println(g, "Middle mouse button adds control point", 0, y);
         y = println(g, "Right mouse button removes latest point added", 0, y);
         y += smallfont.getSize();
         y = println(g, "Use arrow keys to move path as a whole", 0, y);
@@ -193,11 +206,12 @@ public class PathEditor extends GameState {
         switch (event.getButton()) {
             case MouseEvent.BUTTON1:
                 // Left mousebutton
-                path.addPoint(event.getPoint());
+                path.addPoint(event.getPoint(), kind);
                 break;
 
             case MouseEvent.BUTTON2:
                 // Middle mousebutton
+                path.addPoint(event.getPoint(), Path.Kind.CONTROL);
                 break;
 
             case MouseEvent.BUTTON3:
@@ -216,30 +230,32 @@ public class PathEditor extends GameState {
      */
     private void drawPath(Graphics2D g) {
         if (path != null) {
-            // Turn off any cyclic behaviour so that
-            // we can draw properly
-            boolean cyclic = path.isCyclic();
-            path.setCyclic(false);
-            path.reset();
-            Point lastpoint = null;
-            while (true) {
-                Point point = path.next();
-                if (point == null) {
-                    break;
-                } else {
-                    g.setColor(Color.green);
-                    g.fillOval((int) point.getX() - 3, (int) point.getY() - 3, 6, 6);
-                    // Did we have a previous one?
-                    if (lastpoint != null) {
-                        g.setColor(Color.gray);
-                        g.drawLine((int) lastpoint.getX(), (int) lastpoint.getY(),
-                                (int) point.getX(), (int) point.getY());
-                    }
+            // The path as the ships will follow it
+            PathTable table = path.getTable();
+            g.setColor(Color.gray);
+            for (int i = 1; i < table.getPointCount(); ++i) {
+                g.drawLine(Math.round(table.getPointX(i - 1)), Math.round(table.getPointY(i - 1)),
+                        Math.round(table.getPointX(i)), Math.round(table.getPointY(i)));
+            }
+
+            // The points it's made of
+            for (int i = 0; i < path.getPointCount(); ++i) {
+                Point point = path.getPoint(i);
+                switch (path.getKind(i)) {
+                    case CONTROL:
+                        g.setColor(Color.orange);
+                        g.drawRect(point.x - 3, point.y - 3, 6, 6);
+                        break;
+                    case CURVE:
+                        g.setColor(Color.cyan);
+                        g.fillOval(point.x - 3, point.y - 3, 6, 6);
+                        break;
+                    default:
+                        g.setColor(Color.green);
+                        g.fillOval(point.x - 3, point.y - 3, 6, 6);
+                        break;
                 }
-                lastpoint = point;
             }
-            // Restore original cyclic behaviour
-            path.setCyclic(cyclic);
         }
     }
 
@@ -269,6 +285,14 @@ public class PathEditor extends GameState {
                     }
                     break;
 
+                case TOGGLE_CURVE:
+                    if (kind == Path.Kind.CURVE) {
+                        kind = Path.Kind.LINE;
+                    } else {
+                        kind = Path.Kind.CURVE;
+                    }
+                    break;
+
                 case NEW:
                     path = new Path(false);
                     break;
@@ -0,0 +1,272 @@
+package projectuml;
+
+import java.awt.Point;
+
+/**
+ * PathTable
+ *
+ * A path laid out as a polyline, with the distance along the path to
+ * each of its points. Finding where on the path a certain distance
+ * ends up is then just a matter of finding the right segment and
+ * interpolating along it, without any trigonometry.
+ * Curves are cut into short enough segments to look round: a Catmull-
+ * Rom spline after a CURVE point, and a Bezier curve where there are
+ * CONTROL points. A cyclic path gets one more segment, back to its
+ * first point. The same table is used to draw the path in the editor.
+ * The table never changes once it has been built, so it can be shared
+ * by every ship following the path.
+ *
+ * @see Path
+ * @see PathTrack
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public final class PathTable {
+
+    // Longest segment a curve is cut into, in pixels
+    private static final float CURVE_STEP = 6.0f;
+    private float[] xs;
+    private float[] ys;
+    private float[] distances; // Distance along the path to each point
+    private int count;
+    private boolean cyclic;
+
+    /**
+     * Lays out a path.
+     *
+     * @param path
+     */
+    PathTable(Path path) {
+        cyclic = path.isCyclic();
+        int points = path.getPointCount();
+        xs = new float[points + 1];
+        ys = new float[points + 1];
+        count = 0;
+
+        // The points the path passes through
+        int[] anchors = new int[points];
+        int anchorcount = 0;
+        for (int i = 0; i < points; ++i) {
+            if (path.getKind(i) != Path.Kind.CONTROL) {
+                anchors[anchorcount++] = i;
+            }
+        }
+
+        // Each segment adds its points up to, but not
+        // including, the point it ends at
+        int segments = cyclic ? anchorcount : anchorcount - 1;
+        for (int s = 0; s < segments; ++s) {
+            int from = anchors[s];
+            int to = anchors[(s + 1) % anchorcount];
+            int controls = (to - from - 1 + points) % points;
+            Point start = path.getPoint(from);
+            if (controls > 0) {
+                addBezier(path, from, controls + 2);
+            } else if (path.getKind(from) == Path.Kind.CURVE) {
+                addCurve(path.getPoint(anchors[neighbour(s - 1, anchorcount)]), start,
+                        path.getPoint(to), path.getPoint(anchors[neighbour(s + 2, anchorcount)]));
+            } else {
+                add(start.x, start.y);
+            }
+        }
+        if (anchorcount > 0) {
+            // Where the path ends, or back to where it started
+            Point end = path.getPoint(anchors[cyclic ? 0 : anchorcount - 1]);
+            add(end.x, end.y);
+        }
+
+        distances = new float[count];
+        for (int i = 1; i < count; ++i) {
+            float dx = xs[i] - xs[i - 1];
+            float dy = ys[i] - ys[i - 1];
+            distances[i] = distances[i - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * Index of a neighbouring point, wrapping around on a cyclic
+     * path and staying at the ends otherwise.
+     */
+    private int neighbour(int index, int points) {
+        if (cyclic) {
+            return (index + points) % points;
+        }
+        return Math.max(0, Math.min(points - 1, index));
+    }
+
+    /**
+     * Adds a Bezier curve, not including its last point.
+     *
+     * @param path
+     * @param first Index of the first point of the curve
+     * @param order Number of points, including both ends
+     */
+    private void addBezier(Path path, int first, int order) {
+        float[] px = new float[order];
+        float[] py = new float[order];
+        float polygon = 0;
+        for (int i = 0; i < order; ++i) {
+            Point point = path.getPoint((first + i) % path.getPointCount());
+            px[i] = point.x;
+            py[i] = point.y;
+            if (i > 0) {
+                polygon += (float) Math.hypot(px[i] - px[i - 1], py[i] - py[i - 1]);
+            }
+        }
+
+        // The curve is never longer than its control polygon
+        int steps = Math.max(1, (int) Math.ceil(polygon / CURVE_STEP));
+        float[] bx = new float[order];
+        float[] by = new float[order];
+        for (int step = 0; step < steps; ++step) {
+            float t = step / (float) steps;
+            // De Casteljau
+            System.arraycopy(px, 0, bx, 0, order);
+            System.arraycopy(py, 0, by, 0, order);
+            for (int level = order - 1; level > 0; --level) {
+                for (int i = 0; i < level; ++i) {
+                    bx[i] += (bx[i + 1] - bx[i]) * t;
+                    by[i] += (by[i + 1] - by[i]) * t;
+                }
+            }
+            add(bx[0], by[0]);
+        }
+    }
+
+    /**
+     * Adds the curve between p1 and p2, not including p2.
+     */
+    private void addCurve(Point p0, Point p1, Point p2, Point p3) {
+        int steps = Math.max(1, (int) Math.ceil(p1.distance(p2) / CURVE_STEP));
+        for (int step = 0; step < steps; ++step) {
+            float t = step / (float) steps;
+            add(catmullRom(p0.x, p1.x, p2.x, p3.x, t), catmullRom(p0.y, p1.y, p2.y, p3.y, t));
+        }
+    }
+
+    /**
+     * Point on a Catmull-Rom spline between b and c.
+     */
+    private static float catmullRom(float a, float b, float c, float d, float t) {
+        float t2 = t * t;
+        float t3 = t2 * t;
+        return 0.5f * (2 * b + (c - a) * t + (2 * a - 5 * b + 4 * c - d) * t2 + (3 * b - a - 3 * c + d) * t3);
+    }
+
+    /**
+     * Adds a point to the polyline.
+     */
+    private void add(float x, float y) {
+        if (count == xs.length) {
+            float[] morex = new float[count * 2];
+            float[] morey = new float[count * 2];
+            System.arraycopy(xs, 0, morex, 0, count);
+            System.arraycopy(ys, 0, morey, 0, count);
+            xs = morex;
+            ys = morey;
+        }
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+    }
+
+    /**
+     * Finds the segment a distance along the path is on. The search
+     * starts at a hint, which should be the segment found the last
+     * time, so that following the path only ever takes a step or two.
+     *
+     * @param distance Between 0 and getLength()
+     * @param hint Segment to start searching from
+     * @return Index of the point the segment starts at
+     */
+    public int find(float distance, int hint) {
+        int segment = Math.max(0, Math.min(hint, count - 2));
+        while (segment > 0 && distances[segment] > distance) {
+            segment--;
+        }
+        while (segment < count - 2 && distances[segment + 1] <= distance) {
+            segment++;
+        }
+        return segment;
+    }
+
+    /**
+     * X-coordinate at a distance along a segment.
+     *
+     * @param segment Segment as returned by find()
+     * @param distance Distance along the path
+     * @return x
+     */
+    public float getX(int segment, float distance) {
+        return xs[segment] + (xs[segment + 1] - xs[segment]) * fraction(segment, distance);
+    }
+
+    /**
+     * Y-coordinate at a distance along a segment.
+     *
+     * @param segment Segment as returned by find()
+     * @param distance Distance along the path
+     * @return y
+     */
+    public float getY(int segment, float distance) {
+        return ys[segment] + (ys[segment + 1] - ys[segment]) * fraction(segment, distance);
+    }
+
+    /**
+     * How far along a segment a distance is, between 0 and 1.
+     */
+    private float fraction(int segment, float distance) {
+        float length = distances[segment + 1] - distances[segment];
+        if (length <= 0) {
+            return 0;
+        }
+        return Math.min(1, (distance - distances[segment]) / length);
+    }
+
+    /**
+     * Number of points in the polyline.
+     *
+     * @return Number of points
+     */
+    public int getPointCount() {
+        return count;
+    }
+
+    /**
+     * X-coordinate of a point in the polyline.
+     *
+     * @param index
+     * @return x
+     */
+    public float getPointX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Y-coordinate of a point in the polyline.
+     *
+     * @param index
+     * @return y
+     */
+    public float getPointY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Length of the whole path, including the way back
+     * to the start of a cyclic path.
+     *
+     * @return Length in pixels
+     */
+    public float getLength() {
+        return count > 0 ? distances[count - 1] : 0;
+    }
+
+    /**
+     * Check if the path was cyclic when it was laid out.
+     *
+     * @return True if it's cyclic
+     */
+    public boolean isCyclic() {
+        return cyclic;
+    }
+}
@@ -0,0 +1,148 @@
+package projectuml;
+
+/**
+ * PathTrack
+ *
+ * Keeps track of how far along a path something has come. Moving
+ * along the path is done by a distance, and the new position is looked
+ * up in the path's table, so every step is equally long no matter how
+ * the points of the path are spread out.
+ * The track starts where the ship is, which isn't necessarily at the
+ * first point of the path, and leads in to the path from there.
+ * If the path is changed, the track carries on along the new layout
+ * from the same distance.
+ *
+ * @see Path
+ * @see PathTable
+ * @see EnemyShip
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public class PathTrack {
+
+    private Path path;
+    private PathTable table;
+    private float distance; // Along the path, or along the lead-in
+    private int segment;    // Last segment found in the table
+    private float leadx;    // Where the lead-in starts
+    private float leady;
+    private float lead;     // Length of the lead-in, 0 once it's done
+    private float x;
+    private float y;
+    private boolean done;
+
+    /**
+     * Creates a track at the start of a path.
+     *
+     * @param path Path to follow
+     * @param x Where we are now
+     * @param y
+     */
+    public PathTrack(Path path, float x, float y) {
+        this.path = path;
+        this.x = x;
+        this.y = y;
+        leadx = x;
+        leady = y;
+        table = path.getTable();
+        distance = 0;
+        segment = 0;
+        done = false;
+        if (table.getPointCount() > 0) {
+            float dx = table.getPointX(0) - x;
+            float dy = table.getPointY(0) - y;
+            lead = (float) Math.sqrt(dx * dx + dy * dy);
+        } else {
+            lead = 0;
+        }
+    }
+
+    /**
+     * Moves along the path. A path that isn't cyclic ends at its
+     * last point, and the step that gets there is the last one.
+     *
+     * @param step Distance to move
+     * @return False if we had already reached the end
+     */
+    public boolean advance(float step) {
+        if (done) {
+            return false;
+        }
+        // Has the path been changed?
+        PathTable current = path.getTable();
+        if (current != table) {
+            table = current;
+            segment = 0;
+        }
+        int points = table.getPointCount();
+        if (points == 0) {
+            // Nowhere to go
+            return true;
+        }
+
+        distance += step;
+        if (distance < lead) {
+            float t = distance / lead;
+            x = leadx + (table.getPointX(0) - leadx) * t;
+            y = leady + (table.getPointY(0) - leady) * t;
+            return true;
+        }
+        if (lead > 0) {
+            distance -= lead;
+            lead = 0;
+        }
+
+        float length = table.getLength();
+        if (distance >= length) {
+            if (table.isCyclic() && length > 0) {
+                distance %= length;
+                segment = 0;
+            } else {
+                x = table.getPointX(points - 1);
+                y = table.getPointY(points - 1);
+                done = !table.isCyclic();
+                return true;
+            }
+        }
+
+        segment = table.find(distance, segment);
+        x = table.getX(segment, distance);
+        y = table.getY(segment, distance);
+        return true;
+    }
+
+    /**
+     * Current position.
+     *
+     * @return x
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Current position.
+     *
+     * @return y
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Check if the end of the path has been reached.
+     *
+     * @return True if it has
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Path being followed.
+     *
+     * @return path
+     */
+    public Path getPath() {
+        return path;
+    }
+}
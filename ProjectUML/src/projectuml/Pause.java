@@ -6,7 +6,8 @@ import java.awt.event.*;
 /**
  * Pause
  * 
- * A overengineered pause screen.
+ * A overengineered pause screen. The game clock stands
+ * still while it's on top.
  * 
  * @see GameState
  * @see GameStates
@@ -90,11 +91,17 @@ public class Pause extends GameState {
         }
     }
 
-    /** Not used **/
+    /**
+     * Starts the game clock again.
+     */
     public void lostFocus() {
+        GameClock.getInstance().setPaused(false);
     }
 
-    /** Not used **/
+    /**
+     * Stops the game clock.
+     */
     public void gainedFocus() {
+        GameClock.getInstance().setPaused(true);
     }
 }
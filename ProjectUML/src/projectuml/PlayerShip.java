@@ -8,7 +8,9 @@ import java.awt.Point;
  * This is the ship that the player uses.
  * If it loses all it's health it gets destroyed and a destruction
  * animation starts. When a set time has passed since the
- * call to the destroy method, the ship respawns at the start position. 
+ * ship was destroyed, the ship respawns at the start position. The
+ * time is kept by a timer event on the level, scheduled by the first
+ * update after the ship was destroyed.
  * When players life reach zero the ship won't respawn anymore.
  * 
  * @see Ship
@@ -24,7 +26,8 @@ public class PlayerShip extends Ship {
     private final int DX = 3; // Movement speed x-axis. Positive is right
     private final int DY = 3; // Movement speed y-axis. Positive is down
     private Player player;  // Object representing the player
-    private Timestamp timestamp; // Used to check if given timestamp period has passed
+    transient private TimerEvent respawnevent; // Fires when it's time to respawn
+    transient private boolean respawndue;
 
     /** 
      * Creates a new instance of PlayerShip 
@@ -33,7 +36,7 @@ public class PlayerShip extends Ship {
      */
     public PlayerShip(Player player) {
         this.player = player;
-        timestamp = new Timestamp();
+        respawndue = false;
 
         // Set initial position
         setPosition(START_X, START_Y);
@@ -66,11 +69,15 @@ public class PlayerShip extends Ship {
         // done so we should "restart" by showing the ship again
         // and placing it in it's starting position providing that
         // player has lives left.
+        if (isDestroyed() && !respawndue && !getRespawnEvent().isScheduled()) {
+            level.schedule(respawnevent, SPAWN_TIME);
+        }
         if (isDestroyed() && getDestructAnimation().isDone()) {
-            if (timestamp.havePassed(SPAWN_TIME) && player.getLives() > 0) {
+            if (respawndue && player.getLives() > 0) {
                 // Move ship to starting location
                 setPosition(START_X, START_Y);
                 resetShip();
+                respawndue = false;
             }
         } else {
             // Handle ship movement
@@ -83,14 +90,17 @@ public class PlayerShip extends Ship {
     /**
      * Overridden from Ship. 
      * If ship is destroyed, one life is removed from the player. 
-     * Reset timer so that update() can check if there has passed
-     * enough timestamp before the ship is reset.
+     * The respawn is scheduled by the next update(), so that
+     * there has passed enough time before the ship is reset.
      * Otherwise player gets thrown back in the game at the same 
      * second that the destruction animation is done.
      */
     public void destroyShip() {
         if (!isDestroyed()) {
-            timestamp.reset();
+            if (respawnevent != null) {
+                respawnevent.cancel();
+            }
+            respawndue = false;
             super.destroyShip();
             player.removeLife();
 
@@ -143,4 +153,19 @@ public class PlayerShip extends Ship {
     public void resetDy() {
         setDy(0);
     }
+
+    /**
+     * The event that lets the ship respawn.
+     */
+    private TimerEvent getRespawnEvent() {
+        if (respawnevent == null) {
+            respawnevent = new TimerEvent() {
+
+                public void fire(Level level) {
+                    respawndue = true;
+                }
+            };
+        }
+        return respawnevent;
+    }
 }
@@ -31,7 +31,7 @@ public class PowerUp extends Sprite {
      */
     public PowerUp(Point position, String imageFile) {
         setPosition(position);
-        setImage(loadImage(imageFile));
+        loadImageFrom(imageFile);
         activate();
         show();
     }
@@ -0,0 +1,118 @@
+package projectuml;
+
+/**
+ * RandomSource
+ *
+ * A generator of random numbers, owned by whoever needs them instead
+ * of shared by the whole game. Each level has one, and gives each of
+ * its enemies a source of its own, split off from it. An enemy then
+ * draws the same numbers whichever thread it's updated on, and however
+ * many other enemies draw numbers meanwhile. Two levels started from
+ * the same seed play out exactly the same.
+ * The numbers come from the SplitMix64 generator: a counter moved
+ * along by a fixed odd step, scrambled on the way out. It's fast,
+ * and seeds that are close to each other give unrelated numbers.
+ * A source isn't meant to be shared between threads.
+ *
+ * @see Level
+ * @see EnemyShip
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public final class RandomSource {
+
+    // Step of the counter, the golden ratio as a 64-bit number
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // Seeds of unseeded sources, so that no two start out the same
+    private static long seeds = System.nanoTime();
+    private long state;
+
+    /**
+     * Creates a source with a seed of its own.
+     */
+    public RandomSource() {
+        this(nextSeed());
+    }
+
+    /**
+     * Creates a source from a seed.
+     *
+     * @param seed
+     */
+    public RandomSource(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * A new seed for an unseeded source.
+     */
+    private static synchronized long nextSeed() {
+        seeds += GOLDEN_GAMMA;
+        return mix(seeds);
+    }
+
+    /**
+     * Restarts the source from a seed.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    /**
+     * Creates a new source, seeded from this one. The numbers it
+     * gives have nothing in common with the ones this source gives
+     * afterwards.
+     *
+     * @return RandomSource
+     */
+    public RandomSource split() {
+        return new RandomSource(nextLong());
+    }
+
+    /**
+     * Produce a random number
+     *
+     * @return Any long
+     */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Produce a random number
+     *
+     * @param floor
+     * @param ceil
+     * @return integer n between floor and ceiling
+     */
+    public int getNumber(int floor, int ceil) {
+        long range = (long) ceil - floor + 1;
+        // The top bits are the best ones
+        return floor + (int) (((nextLong() >>> 32) * range) >>> 32);
+    }
+
+    /**
+     * Produce a random (float) number between
+     * 0.0 and 1.0
+     *
+     * @return float in [0, 1)
+     */
+    public float getFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Scrambles a number, so that numbers close to each
+     * other end up far apart.
+     *
+     * @param z
+     * @return Scrambled number
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,331 @@
+package projectuml;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * RenderSnapshot
+ *
+ * Everything needed to draw a frame of a running level: the stars of
+ * the scenery, where each sprite is and what it looks like, the
+ * enemies' health bars and the values shown in the heads-up-display.
+ * A snapshot is filled in by the logic when it has finished a step,
+ * and is then only read by the renderer, which means the renderer
+ * never has to look at (or lock) the level itself.
+ * Snapshots are reused from frame to frame so that no garbage is
+ * produced once they have grown large enough.
+ * Things that move keep the position they had at the step before
+ * as well. The renderer draws them part of the way between the two,
+ * as far as it has come towards the next step, so that movement is
+ * smooth even though the logic only moves things every TICK_MILLIS.
+ * Anything that has jumped further than a step could take it, like
+ * a star wrapping around the screen, is drawn where it is now.
+ *
+ * @see SnapshotBuffer
+ * @see Level
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class RenderSnapshot {
+
+    // Furthest anything moves in a step, in pixels
+    private static final int MAX_STEP = 32;
+    // Points, like stars
+    private int[] pointx;
+    private int[] pointy;
+    private int[] previouspointx;
+    private int[] previouspointy;
+    private Color[] pointcolors;
+    private int pointcount;
+    // Sprites
+    private BufferedImage[] images;
+    private SpriteAtlas.Region[] regions;
+    private int[] imagex;
+    private int[] imagey;
+    private int[] previousimagex; // Position at the step before
+    private int[] previousimagey;
+    private int imagecount;
+    // Health bars
+    private int[] barx;
+    private int[] bary;
+    private int[] previousbarx;
+    private int[] previousbary;
+    private int[] barwidth;
+    private float[] barpercent;
+    private int barcount;
+    // Heads-up-display
+    private boolean hud;
+    private int health;
+    private int maxhealth;
+    private Font hudfont;
+
+    /**
+     * Creates an empty snapshot.
+     */
+    public RenderSnapshot() {
+        pointx = new int[128];
+        pointy = new int[128];
+        previouspointx = new int[128];
+        previouspointy = new int[128];
+        pointcolors = new Color[128];
+        images = new BufferedImage[64];
+        regions = new SpriteAtlas.Region[64];
+        imagex = new int[64];
+        imagey = new int[64];
+        previousimagex = new int[64];
+        previousimagey = new int[64];
+        barx = new int[16];
+        bary = new int[16];
+        previousbarx = new int[16];
+        previousbary = new int[16];
+        barwidth = new int[16];
+        barpercent = new float[16];
+        clear();
+    }
+
+    /**
+     * Empties the snapshot, so that it can be filled
+     * in with a new frame.
+     */
+    public void clear() {
+        for (int i = 0; i < pointcount; ++i) {
+            pointcolors[i] = null;
+        }
+        pointcount = 0;
+        for (int i = 0; i < imagecount; ++i) {
+            images[i] = null;
+            regions[i] = null;
+        }
+        imagecount = 0;
+        barcount = 0;
+        hud = false;
+        health = 0;
+        maxhealth = 0;
+        hudfont = null;
+    }
+
+    /**
+     * Adds a single pixel that has moved since the step
+     * before. Points are drawn before anything else.
+     *
+     * @param previousx Position at the step before
+     * @param previousy
+     * @param x Position now
+     * @param y
+     * @param color
+     */
+    public void addPoint(int previousx, int previousy, int x, int y, Color color) {
+        if (pointcount == pointx.length) {
+            int size = pointx.length * 2;
+            pointx = grow(pointx, size);
+            pointy = grow(pointy, size);
+            previouspointx = grow(previouspointx, size);
+            previouspointy = grow(previouspointy, size);
+            Color[] morecolors = new Color[size];
+            System.arraycopy(pointcolors, 0, morecolors, 0, pointcount);
+            pointcolors = morecolors;
+        }
+        pointx[pointcount] = x;
+        pointy[pointcount] = y;
+        previouspointx[pointcount] = previousx;
+        previouspointy[pointcount] = previousy;
+        pointcolors[pointcount] = color;
+        pointcount++;
+    }
+
+    /**
+     * Adds an image to be drawn at a certain position.
+     * Images are drawn in the order they're added.
+     *
+     * @param image
+     * @param x
+     * @param y
+     */
+    public void addImage(BufferedImage image, int x, int y) {
+        addImage(image, ImageCache.getInstance().getRegion(image), x, y);
+    }
+
+    /**
+     * Adds an image to be drawn at a certain position, when it's
+     * already known where it is in the atlas.
+     *
+     * @param image
+     * @param region Where the image is in the atlas, or null
+     * @param x
+     * @param y
+     */
+    public void addImage(BufferedImage image, SpriteAtlas.Region region, int x, int y) {
+        addImage(image, region, x, y, x, y);
+    }
+
+    /**
+     * Adds an image that has moved since the step before.
+     *
+     * @param image
+     * @param region Where the image is in the atlas, or null
+     * @param previousx Position at the step before
+     * @param previousy
+     * @param x Position now
+     * @param y
+     */
+    public void addImage(BufferedImage image, SpriteAtlas.Region region,
+            int previousx, int previousy, int x, int y) {
+        if (image == null) {
+            return;
+        }
+        if (imagecount == images.length) {
+            int size = images.length * 2;
+            BufferedImage[] moreimages = new BufferedImage[size];
+            System.arraycopy(images, 0, moreimages, 0, imagecount);
+            images = moreimages;
+            SpriteAtlas.Region[] moreregions = new SpriteAtlas.Region[size];
+            System.arraycopy(regions, 0, moreregions, 0, imagecount);
+            regions = moreregions;
+            imagex = grow(imagex, size);
+            imagey = grow(imagey, size);
+            previousimagex = grow(previousimagex, size);
+            previousimagey = grow(previousimagey, size);
+        }
+        images[imagecount] = image;
+        regions[imagecount] = region;
+        imagex[imagecount] = x;
+        imagey[imagecount] = y;
+        previousimagex[imagecount] = previousx;
+        previousimagey[imagecount] = previousy;
+        imagecount++;
+    }
+
+    /**
+     * Adds a health bar.
+     *
+     * @param x
+     * @param y
+     * @param width Width of a full bar
+     * @param percent How much of the bar that's filled (0.0 to 1.0)
+     */
+    public void addHealthBar(int x, int y, int width, float percent) {
+        addHealthBar(x, y, x, y, width, percent);
+    }
+
+    /**
+     * Adds a health bar that has moved since the step before.
+     *
+     * @param previousx Position at the step before
+     * @param previousy
+     * @param x Position now
+     * @param y
+     * @param width Width of a full bar
+     * @param percent How much of the bar that's filled (0.0 to 1.0)
+     */
+    public void addHealthBar(int previousx, int previousy, int x, int y, int width, float percent) {
+        if (barcount == barx.length) {
+            int size = barx.length * 2;
+            barx = grow(barx, size);
+            bary = grow(bary, size);
+            previousbarx = grow(previousbarx, size);
+            previousbary = grow(previousbary, size);
+            barwidth = grow(barwidth, size);
+            float[] morepercent = new float[size];
+            System.arraycopy(barpercent, 0, morepercent, 0, barcount);
+            barpercent = morepercent;
+        }
+        barx[barcount] = x;
+        bary[barcount] = y;
+        previousbarx[barcount] = previousx;
+        previousbary[barcount] = previousy;
+        barwidth[barcount] = width;
+        barpercent[barcount] = percent;
+        barcount++;
+    }
+
+    /**
+     * Sets the values shown in the heads-up-display.
+     *
+     * @param font Font to print with
+     * @param health Player health
+     * @param maxhealth Player max health
+     */
+    public void setHUD(Font font, int health, int maxhealth) {
+        hud = true;
+        hudfont = font;
+        this.health = health;
+        this.maxhealth = maxhealth;
+    }
+
+    /**
+     * Number of images in the snapshot.
+     *
+     * @return Number of images
+     */
+    public int getImageCount() {
+        return imagecount;
+    }
+
+    /**
+     * Draws the snapshot as it was at the step.
+     *
+     * @param g2D
+     */
+    public void draw(Graphics2D g2D) {
+        draw(g2D, 1.0f);
+    }
+
+    /**
+     * Draws the snapshot part of the way from the step
+     * before to the step it was filled in at.
+     *
+     * @param g2D
+     * @param interpolation How far between the steps
+     *        (0.0 to 1.0)
+     */
+    public void draw(Graphics2D g2D, float interpolation) {
+        for (int i = 0; i < pointcount; ++i) {
+            int x = blend(previouspointx[i], pointx[i], interpolation);
+            int y = blend(previouspointy[i], pointy[i], interpolation);
+            g2D.setColor(pointcolors[i]);
+            g2D.drawLine(x, y, x, y);
+        }
+        for (int i = 0; i < imagecount; ++i) {
+            int x = blend(previousimagex[i], imagex[i], interpolation);
+            int y = blend(previousimagey[i], imagey[i], interpolation);
+            if (regions[i] != null) {
+                regions[i].draw(g2D, x, y);
+            } else {
+                g2D.drawImage(images[i], x, y, null);
+            }
+        }
+        for (int i = 0; i < barcount; ++i) {
+            if (barpercent[i] > 0.5) {
+                g2D.setColor(Color.green);
+            } else {
+                g2D.setColor(Color.red);
+            }
+            g2D.fillRect(blend(previousbarx[i], barx[i], interpolation),
+                    blend(previousbary[i], bary[i], interpolation),
+                    (int) (barpercent[i] * barwidth[i]), 2);
+        }
+        if (hud) {
+            Level.drawHUD(g2D, hudfont, health, maxhealth);
+        }
+    }
+
+    /**
+     * Position part of the way between two, unless
+     * they're further apart than a step.
+     */
+    private static int blend(int previous, int current, float interpolation) {
+        int distance = current - previous;
+        if (distance > MAX_STEP || distance < -MAX_STEP) {
+            return current;
+        }
+        return previous + Math.round(distance * interpolation);
+    }
+
+    /**
+     * Copies an array into a larger one.
+     */
+    private static int[] grow(int[] array, int size) {
+        int[] larger = new int[size];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+}
@@ -13,7 +13,28 @@ import java.io.Serializable;
  */
 public abstract class Scenery implements Serializable {
 
+    private static final long serialVersionUID = -5899381372557306133L;
+
     public abstract void update();
 
     public abstract void draw(Graphics2D g);
+
+    /**
+     * Arranges the scenery anew with numbers from a random
+     * source, if it's random at all.
+     *
+     * @param random
+     */
+    public void setRandom(RandomSource random) {
+    }
+
+    /**
+     * Adds the scenery to a snapshot, so that it can be
+     * drawn without touching the scenery itself. Scenery
+     * that isn't captured isn't drawn while the game runs.
+     *
+     * @param snapshot Snapshot to fill in
+     */
+    public void capture(RenderSnapshot snapshot) {
+    }
 }
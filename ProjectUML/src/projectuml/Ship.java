@@ -18,11 +18,20 @@ import java.awt.*;
 public abstract class Ship extends Sprite {
 
     private static final long serialVersionUID = 1L;
+    // The fields as they're serialized, destroyed as a Boolean
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("maxhealth", Integer.TYPE),
+        new ObjectStreamField("health", Integer.TYPE),
+        new ObjectStreamField("dx", Integer.TYPE),
+        new ObjectStreamField("dy", Integer.TYPE),
+        new ObjectStreamField("destroyed", Boolean.class),
+        new ObjectStreamField("weaponList", WeaponList.class)
+    };
     private int maxhealth;      // Ship's max health
     private int health;         // Ship's health
     private int dx;             // Change in x direction, negative is left
     private int dy;             // Change in y direction, negative is down
-    private Boolean destroyed;  // Flags the ship as destroyed    
+    private boolean destroyed;  // Flags the ship as destroyed    
     private WeaponList weaponList;
     transient private AnimatedSprite destructionAnimation; // Animation of ships destructionAnimation
 
@@ -57,8 +66,8 @@ public abstract class Ship extends Sprite {
      */
     public void fire(Level level) {
         if (!isDestroyed()) {
-            for (Weapon w : weaponList) {
-                w.fire(level, this);
+            for (int i = 0; i < weaponList.size(); ++i) {
+                weaponList.get(i).fire(level, this);
             }
         }
     }
@@ -95,6 +104,19 @@ public abstract class Ship extends Sprite {
         }
     }
 
+    /**
+     * Overridden capture method that also adds the destruction
+     * animation if the ship is destroyed.
+     * 
+     * @param snapshot Snapshot to add to
+     */
+    public void capture(RenderSnapshot snapshot) {
+        super.capture(snapshot);
+        if (destroyed) {
+            destructionAnimation.capture(snapshot);
+        }
+    }
+
     /**
      * Increase ship's health. This can be done by
      * power ups.
@@ -159,8 +181,10 @@ public abstract class Ship extends Sprite {
      * Here we set the animations position to be the same as 
      * the ships.
      * Ship is still active so it will listen to update() calls.
+     * Whatever the ship had scheduled is cancelled.
      */
     protected void destroyShip() {
+        cancelTimers();
         hide();           // Make sure ship isn't drawn
         destroyed = true; // Mark as destroyed
         destructionAnimation.reset(); // Make sure the animation is restarted
@@ -169,12 +193,22 @@ public abstract class Ship extends Sprite {
         destructionAnimation.activate();
     }
 
+    /**
+     * Cancels the timer events the ship has scheduled, when
+     * it's destroyed or the level lets go of it.
+     */
+    public void cancelTimers() {
+        if (destructionAnimation != null) {
+            destructionAnimation.cancelTimers();
+        }
+    }
+
     /**
      * Check if the ship is destroyed
      * 
      * @return destroyed
      */
-    public Boolean isDestroyed() {
+    public boolean isDestroyed() {
         return destroyed;
     }
 
@@ -195,6 +229,17 @@ public abstract class Ship extends Sprite {
         activate();
     }
 
+    /**
+     * Gives back the references to both the ship's image
+     * and the images of its destruction animation.
+     */
+    public void releaseImage() {
+        super.releaseImage();
+        if (destructionAnimation != null) {
+            destructionAnimation.releaseImage();
+        }
+    }
+
     /**
      * Get the animation used for destruction sequence.
      * 
@@ -296,11 +341,32 @@ public abstract class Ship extends Sprite {
         return dy;
     }
 
+    /**
+     * Used by the serialization
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("maxhealth", maxhealth);
+        fields.put("health", health);
+        fields.put("dx", dx);
+        fields.put("dy", dy);
+        fields.put("destroyed", Boolean.valueOf(destroyed));
+        fields.put("weaponList", weaponList);
+        out.writeFields();
+    }
+
     /**
      * Used by the (de)serialization
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
+        ObjectInputStream.GetField fields = in.readFields();
+        maxhealth = fields.get("maxhealth", 0);
+        health = fields.get("health", 0);
+        dx = fields.get("dx", 0);
+        dy = fields.get("dy", 0);
+        Boolean wasdestroyed = (Boolean) fields.get("destroyed", null);
+        destroyed = wasdestroyed != null && wasdestroyed.booleanValue();
+        weaponList = (WeaponList) fields.get("weaponList", null);
         destructionAnimation = AnimationFactory.createExplosion();
     }
 }
@@ -14,6 +14,7 @@ import java.awt.*;
  */
 public class Shot extends Sprite {
 
+    private static final long serialVersionUID = -1189706748136291695L;
     private int dx;  // Movement in x-direction
     private int dy;  // Movement in y-direction
     private int damage; // Damage done on impact
@@ -46,6 +47,7 @@ public class Shot extends Sprite {
      * @param imageFile
      */
     public Shot(int damage, int dx, int dy, Point position, String imageFile) {
+        this.damage = damage;
         setTouchBehaviour(new HurtShip(damage));
         setDx(dx);
         setDy(dy);
@@ -63,6 +65,33 @@ public class Shot extends Sprite {
         }
     }
 
+    /**
+     * Get damage done on impact.
+     * 
+     * @return damage
+     */
+    public int getDamage() {
+        return damage;
+    }
+
+    /**
+     * Get shot's dx.
+     * 
+     * @return dx
+     */
+    public int getDx() {
+        return dx;
+    }
+
+    /**
+     * Get shot's dy.
+     * 
+     * @return dy
+     */
+    public int getDy() {
+        return dy;
+    }
+
     /**
      * Set shot's dx.
      * 
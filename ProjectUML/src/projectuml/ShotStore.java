@@ -0,0 +1,354 @@
+package projectuml;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * ShotStore
+ *
+ * All the shots of one side in a level, kept as plain arrays instead
+ * of as Shot objects: one array for each of x, y, dx, dy, damage and
+ * image. Moving, testing and drawing the shots then runs through the
+ * arrays from one end to the other, and adding and removing shots
+ * never creates or leaves anything for the garbage collector, however
+ * many of them there are.
+ * A shot is removed by moving the last shot into its place, so the
+ * order of the shots isn't kept. Loops that remove shots should run
+ * from the end.
+ * Images are held in a small table, loaded from the image cache the
+ * first time a shot with a certain image is added, and given back
+ * when the store is cleared.
+ * The store counts the shots added to it and the times it ran out
+ * of room and had to grow, so that its capacity can be set high
+ * enough for a level never to grow it while it's played.
+ *
+ * @see Shot
+ * @see Level
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public class ShotStore {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private int[] xs;
+    private int[] ys;
+    private int[] dxs;
+    private int[] dys;
+    private int[] damages;
+    private int[] images;       // Index into the image table
+    private int count;
+    private long added;          // Shots added, ever
+    private long exhaustions;    // Times the store was full when adding
+    private long allocated;      // Room for shots allocated, ever
+    private String[] imagefiles; // Image table
+    private BufferedImage[] imagetable;
+    private SpriteAtlas.Region[] regions;
+    private int imagecount;
+
+    /**
+     * Creates an empty store.
+     */
+    public ShotStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty store with room for a number
+     * of shots. It grows as needed.
+     *
+     * @param capacity Number of shots
+     */
+    public ShotStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        xs = new int[capacity];
+        ys = new int[capacity];
+        dxs = new int[capacity];
+        dys = new int[capacity];
+        damages = new int[capacity];
+        images = new int[capacity];
+        count = 0;
+        added = 0;
+        exhaustions = 0;
+        allocated = capacity;
+        imagefiles = new String[4];
+        imagetable = new BufferedImage[4];
+        regions = new SpriteAtlas.Region[4];
+        imagecount = 0;
+    }
+
+    /**
+     * Adds a shot.
+     *
+     * @param damage Damage done on impact
+     * @param dx Movement in x-direction
+     * @param dy Movement in y-direction
+     * @param x Start position
+     * @param y
+     * @param imageFile Path to image
+     */
+    public void add(int damage, int dx, int dy, int x, int y, String imageFile) {
+        if (count == xs.length) {
+            exhaustions++;
+            resize(xs.length * 2);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        dxs[count] = dx;
+        dys[count] = dy;
+        damages[count] = damage;
+        images[count] = findImage(imageFile);
+        count++;
+        added++;
+    }
+
+    /**
+     * Removes a shot by moving the last shot into its place.
+     *
+     * @param index
+     */
+    public void remove(int index) {
+        count--;
+        xs[index] = xs[count];
+        ys[index] = ys[count];
+        dxs[index] = dxs[count];
+        dys[index] = dys[count];
+        damages[index] = damages[count];
+        images[index] = images[count];
+    }
+
+    /**
+     * Moves every shot along.
+     */
+    public void move() {
+        for (int i = 0; i < count; ++i) {
+            xs[i] += dxs[i];
+            ys[i] += dys[i];
+        }
+    }
+
+    /**
+     * Removes the shots that are entirely outside an area
+     * starting at 0, 0.
+     *
+     * @param width Width of the area
+     * @param height Height of the area
+     * @return Number of shots removed
+     */
+    public int removeOffScreen(int width, int height) {
+        int removed = 0;
+        for (int i = count - 1; i >= 0; --i) {
+            BufferedImage image = imagetable[images[i]];
+            int w = image != null ? image.getWidth() : 0;
+            int h = image != null ? image.getHeight() : 0;
+            if (xs[i] > width || ys[i] > height || xs[i] + w < 0 || ys[i] + h < 0) {
+                remove(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Draws every shot.
+     *
+     * @param g2D
+     */
+    public void draw(Graphics2D g2D) {
+        for (int i = 0; i < count; ++i) {
+            int image = images[i];
+            if (regions[image] != null) {
+                regions[image].draw(g2D, xs[i], ys[i]);
+            } else if (imagetable[image] != null) {
+                g2D.drawImage(imagetable[image], xs[i], ys[i], null);
+            }
+        }
+    }
+
+    /**
+     * Adds every shot to a render snapshot. A shot was one
+     * movement back at the previous step.
+     *
+     * @param snapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        for (int i = 0; i < count; ++i) {
+            int image = images[i];
+            snapshot.addImage(imagetable[image], regions[image],
+                    xs[i] - dxs[i], ys[i] - dys[i], xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Removes every shot, and gives back the images
+     * to the image cache.
+     */
+    public void clear() {
+        count = 0;
+        for (int i = 0; i < imagecount; ++i) {
+            if (imagetable[i] != null) {
+                ImageCache.getInstance().release(imagefiles[i]);
+            }
+            imagefiles[i] = null;
+            imagetable[i] = null;
+            regions[i] = null;
+        }
+        imagecount = 0;
+    }
+
+    /**
+     * Number of shots in the store.
+     *
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Number of shots the store has room for before it
+     * has to grow.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return xs.length;
+    }
+
+    /**
+     * Makes room for at least a number of shots.
+     *
+     * @param capacity Number of shots
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Number of shots ever added to the store.
+     *
+     * @return Shots added
+     */
+    public long getAddedCount() {
+        return added;
+    }
+
+    /**
+     * Number of times the store was full when a shot
+     * was added, and had to grow.
+     *
+     * @return Exhaustions
+     */
+    public long getExhaustionCount() {
+        return exhaustions;
+    }
+
+    /**
+     * Room for shots the store has allocated, from the
+     * start and every time it has grown.
+     *
+     * @return Number of shots
+     */
+    public long getAllocatedCount() {
+        return allocated;
+    }
+
+    /**
+     * Position of a shot.
+     *
+     * @param index
+     * @return x
+     */
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Position of a shot.
+     *
+     * @param index
+     * @return y
+     */
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Damage a shot does on impact.
+     *
+     * @param index
+     * @return damage
+     */
+    public int getDamage(int index) {
+        return damages[index];
+    }
+
+    /**
+     * Sums up the position, movement, damage and image
+     * of every shot, in the order they're kept.
+     *
+     * @return Checksum
+     */
+    public long checksum() {
+        long sum = count;
+        for (int i = 0; i < count; ++i) {
+            sum = sum * 31 + xs[i];
+            sum = sum * 31 + ys[i];
+            sum = sum * 31 + dxs[i];
+            sum = sum * 31 + dys[i];
+            sum = sum * 31 + damages[i];
+            sum = sum * 31 + imagefiles[images[i]].hashCode();
+        }
+        return sum;
+    }
+
+    /**
+     * Finds an image in the table, loading it if it
+     * isn't there.
+     */
+    private int findImage(String imageFile) {
+        for (int i = 0; i < imagecount; ++i) {
+            if (imagefiles[i].equals(imageFile)) {
+                return i;
+            }
+        }
+        if (imagecount == imagefiles.length) {
+            String[] morefiles = new String[imagecount * 2];
+            BufferedImage[] moreimages = new BufferedImage[imagecount * 2];
+            SpriteAtlas.Region[] moreregions = new SpriteAtlas.Region[imagecount * 2];
+            System.arraycopy(imagefiles, 0, morefiles, 0, imagecount);
+            System.arraycopy(imagetable, 0, moreimages, 0, imagecount);
+            System.arraycopy(regions, 0, moreregions, 0, imagecount);
+            imagefiles = morefiles;
+            imagetable = moreimages;
+            regions = moreregions;
+        }
+        BufferedImage image = ImageCache.getInstance().acquire(imageFile);
+        imagefiles[imagecount] = imageFile;
+        imagetable[imagecount] = image;
+        regions[imagecount] = image != null ? ImageCache.getInstance().getRegion(image) : null;
+        return imagecount++;
+    }
+
+    /**
+     * Changes the room for shots.
+     */
+    private void resize(int capacity) {
+        allocated += capacity;
+        xs = copyOf(xs, capacity);
+        ys = copyOf(ys, capacity);
+        dxs = copyOf(dxs, capacity);
+        dys = copyOf(dys, capacity);
+        damages = copyOf(damages, capacity);
+        images = copyOf(images, capacity);
+    }
+
+    /**
+     * Copies an array into a larger one.
+     */
+    private static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+}
@@ -0,0 +1,83 @@
+package projectuml;
+
+/**
+ * SilentSoundPlayer
+ * 
+ * A sound player that never plays anything. Used when there's
+ * no audio device to play on, e.g. when a level is run headless.
+ * Sounds are never loaded, but loading them is always reported
+ * as a success so that the game goes on as usual.
+ *
+ * @see SoundPlayer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class SilentSoundPlayer extends SoundPlayer {
+
+    /**
+     * Creates the silent sound player.
+     */
+    public SilentSoundPlayer() {
+        super(null);
+        super.mute();
+    }
+
+    public void mute() {
+    }
+
+    public void unmute() {
+    }
+
+    public Boolean loadSound(String filename, String keyname) {
+        return true;
+    }
+
+    public void play(String name) {
+    }
+
+    public void loopPlay(String name, int count) {
+    }
+
+    public void stop(String name) {
+    }
+
+    public void resume(String name) {
+    }
+
+    public Boolean isPlaying() {
+        return false;
+    }
+
+    public void fadeOut(String keyname) {
+    }
+
+    public void fadeOut(String keyname, long millis, Envelope.Curve curve) {
+    }
+
+    public void fadeOutEverything() {
+    }
+
+    public void fadeOutEverything(long millis, Envelope.Curve curve) {
+    }
+
+    public void fadeIn(String keyname, long millis, Envelope.Curve curve) {
+    }
+
+    public void crossFade(String from, String to, long millis) {
+    }
+
+    public void duck(String keyname, float gain, long millis) {
+    }
+
+    public void unduck(String keyname, long millis) {
+    }
+
+    public void close() {
+    }
+
+    public void debugDump() {
+        System.out.println("--- SilentSoundPlayer ---");
+    }
+
+    public void debugDump(String keyname) {
+    }
+}
@@ -0,0 +1,74 @@
+package projectuml;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SnapshotBuffer
+ *
+ * Hands over render snapshots from the logic thread to the render
+ * thread without any locking. There are three snapshots: one being
+ * filled in by the logic, one being drawn by the renderer, and one
+ * in between holding the latest complete frame. Publishing a frame
+ * and picking up the latest one are both a single atomic swap of the
+ * one in between, so neither thread ever waits for the other.
+ * Only one thread may write and only one thread may read.
+ *
+ * @see RenderSnapshot
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class SnapshotBuffer {
+
+    private static final int INDEX = 3;  // Bits holding a snapshot index
+    private static final int FRESH = 4;  // Set when the shared snapshot hasn't been read
+    private RenderSnapshot[] snapshots;
+    private AtomicInteger shared;        // Index of the snapshot in between
+    private int back;                    // Snapshot being written
+    private int front;                   // Snapshot being read
+
+    /**
+     * Creates the buffer with three empty snapshots.
+     */
+    public SnapshotBuffer() {
+        snapshots = new RenderSnapshot[3];
+        for (int i = 0; i < snapshots.length; ++i) {
+            snapshots[i] = new RenderSnapshot();
+        }
+        front = 0;
+        shared = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * Retrieves an empty snapshot for the writer to fill in.
+     * Call publish() when it's complete.
+     *
+     * @return Snapshot to write to
+     */
+    public RenderSnapshot beginWrite() {
+        RenderSnapshot snapshot = snapshots[back];
+        snapshot.clear();
+        return snapshot;
+    }
+
+    /**
+     * Makes the snapshot retrieved by beginWrite() available
+     * to the reader.
+     */
+    public void publish() {
+        back = shared.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Retrieves the latest complete snapshot. If nothing new
+     * has been published, the same snapshot as last time
+     * is returned.
+     *
+     * @return Snapshot to read from
+     */
+    public RenderSnapshot latest() {
+        if ((shared.get() & FRESH) != 0) {
+            front = shared.getAndSet(front) & INDEX;
+        }
+        return snapshots[front];
+    }
+}
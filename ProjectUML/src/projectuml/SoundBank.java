@@ -0,0 +1,228 @@
+package projectuml;
+
+import java.io.*;
+import java.util.*;
+import javax.sound.sampled.*;
+
+/**
+ * SoundBank
+ *
+ * Process-wide store of decoded sounds, keyed by file name.
+ * Every sound file is decoded into PCM data once, and is then
+ * shared by all sound players that use it. The data is always
+ * 16-bit signed little-endian, which is what the SoundMixer plays.
+ * Each player holds a reference to the sounds it
+ * has loaded. Sounds no one references stay in the bank until
+ * unloadUnused() is called, so that going from one level to the
+ * next doesn't mean decoding the same files again.
+ *
+ * @see SoundPlayer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public final class SoundBank {
+
+    private static final SoundBank instance = new SoundBank();
+    private HashMap<String, Sound> sounds;
+    private long bytesheld;  // Bytes of PCM data held by all sounds
+    private long hits;       // Number of requests served from the bank
+    private long misses;     // Number of requests that had to decode
+
+    /**
+     * A decoded sound, shared by everyone playing it.
+     */
+    public static class Sound {
+
+        private String file;
+        private AudioFormat format;
+        private byte[] data;
+        private int references;
+
+        private Sound(String file, AudioFormat format, byte[] data) {
+            this.file = file;
+            this.format = format;
+            this.data = data;
+            references = 0;
+        }
+
+        /**
+         * Path to the file the sound was decoded from.
+         *
+         * @return file
+         */
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * Format of the PCM data.
+         *
+         * @return format
+         */
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        /**
+         * The decoded PCM data. Shared, so it must not be changed.
+         *
+         * @return data
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Length of the sound in sample frames.
+         *
+         * @return Number of frames
+         */
+        public int getFrameCount() {
+            return data.length / format.getFrameSize();
+        }
+    }
+
+    /**
+     * Creates an empty sound bank.
+     */
+    private SoundBank() {
+        sounds = new HashMap<String, Sound>();
+        bytesheld = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Retrieves the sound bank shared by the whole game.
+     *
+     * @return SoundBank
+     */
+    public static SoundBank getInstance() {
+        return instance;
+    }
+
+    /**
+     * Retrieves a sound, decoding it if it isn't already in the
+     * bank. The caller holds a reference to the sound until it's
+     * given back with release().
+     *
+     * @param file Path to sound file
+     * @return Sound
+     * @throws IOException If the file couldn't be read
+     * @throws UnsupportedAudioFileException If it isn't a sound we know of
+     */
+    public synchronized Sound acquire(String file) throws IOException, UnsupportedAudioFileException {
+        String key = new File(file).getAbsolutePath();
+        Sound sound = sounds.get(key);
+        if (sound != null) {
+            hits++;
+        } else {
+            misses++;
+            sound = decode(key);
+            sounds.put(key, sound);
+            bytesheld += sound.data.length;
+        }
+        sound.references++;
+        return sound;
+    }
+
+    /**
+     * Gives back a reference to a sound. When no one references
+     * it anymore it may be unloaded.
+     *
+     * @param sound
+     */
+    public synchronized void release(Sound sound) {
+        if (sound != null && sound.references > 0) {
+            sound.references--;
+        }
+    }
+
+    /**
+     * Throws out every sound no one references.
+     *
+     * @return Number of sounds unloaded
+     */
+    public synchronized int unloadUnused() {
+        int unloaded = 0;
+        Iterator<Sound> it = sounds.values().iterator();
+        while (it.hasNext()) {
+            Sound sound = it.next();
+            if (sound.references == 0) {
+                bytesheld -= sound.data.length;
+                unloaded++;
+                it.remove();
+            }
+        }
+        return unloaded;
+    }
+
+    /**
+     * Number of requests that were served from the bank.
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of requests that had to decode the sound file.
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Amount of PCM data held by the bank.
+     *
+     * @return Bytes
+     */
+    public synchronized long getBytesHeld() {
+        return bytesheld;
+    }
+
+    /**
+     * Number of sounds in the bank.
+     *
+     * @return Number of sounds
+     */
+    public synchronized int size() {
+        return sounds.size();
+    }
+
+    /**
+     * Decodes a sound file into 16-bit signed little-endian PCM data.
+     *
+     * @param file Path to sound file
+     * @return Sound
+     * @throws IOException
+     * @throws UnsupportedAudioFileException
+     */
+    private static Sound decode(String file) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream stream = AudioSystem.getAudioInputStream(new File(file));
+        try {
+            AudioFormat format = stream.getFormat();
+            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED ||
+                    format.getSampleSizeInBits() != 16 || format.isBigEndian()) {
+                // Convert anything else into plain 16-bit PCM
+                AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                        format.getSampleRate(), 16, format.getChannels(),
+                        format.getChannels() * 2, format.getSampleRate(), false);
+                stream = AudioSystem.getAudioInputStream(pcm, stream);
+                format = pcm;
+            }
+
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16384];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                data.write(buffer, 0, read);
+            }
+            return new Sound(file, format, data.toByteArray());
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,722 @@
+package projectuml;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.*;
+
+/**
+ * SoundMixer
+ *
+ * Mixes every sound played in the game into one stream, which is
+ * sent to a SoundSink (normally the sound card). Sounds are played
+ * on a fixed number of voices, so the same sound can be played many
+ * times at once without cutting itself off. When all voices are busy
+ * the one with the lowest priority is stolen, unless the new sound's
+ * priority is even lower, in which case the new sound is dropped.
+ *
+ * The game never touches the voices itself. It sends commands
+ * through a lock-free queue, and the mixer carries them out before
+ * it mixes the next block. Normally the mixer runs in a thread of
+ * its own, paced by the sink. It can also be run by calling mix()
+ * directly, e.g. into an OfflineSink when running headless.
+ *
+ * Fades are done by ramping the volume of voices, or of the whole
+ * mix, with an Envelope. The envelopes are advanced as the sound is
+ * mixed, so every fade runs off the same clock, and the volume is
+ * changed smoothly from one sample frame to the next.
+ *
+ * @see SoundPlayer
+ * @see SoundBank
+ * @see Envelope
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class SoundMixer implements Runnable {
+
+    public static final float SAMPLE_RATE = 44100f;
+    // Mixed sound is 16-bit signed little-endian stereo
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+    public static final int PRIORITY_EFFECT = 0;
+    public static final int PRIORITY_MUSIC = 10;
+    public static final int LOOP_FOREVER = -1;
+    private static final int DEFAULT_VOICES = 24;
+    private static final int BLOCK_FRAMES = 512;   // Frames mixed at a time
+    private static final int LINE_BLOCKS = 4;      // Blocks buffered by the sound card
+    private static final int GAIN_ONE = 4096;      // Gain 1.0 in fixed point
+    private static SoundMixer instance;
+    private Voice[] voices;
+    private ConcurrentLinkedQueue<Command> commands;
+    private AtomicInteger nexthandle;
+    private SoundSink sink;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile float mastergain;
+    private Envelope masterenvelope;    // Ramp of the master volume, or null
+    private int[] mixbuffer;
+    private byte[] outbuffer;
+    private long sequence;              // Order voices were started in
+    private volatile long framesmixed;
+    private volatile long stolen;       // Voices taken from a playing sound
+    private volatile long dropped;      // Sounds not played for lack of voices
+
+    // Command types
+    private static final int PLAY = 0;
+    private static final int STOP = 1;
+    private static final int PAUSE = 2;
+    private static final int RESUME = 3;
+    private static final int GAIN = 4;
+    private static final int RAMP = 5;
+    private static final int MASTER = 6;
+
+    /**
+     * Something the game wants done to the voices. A command
+     * applies either to a single voice, by its handle, or to
+     * every voice with a certain owner (and sound).
+     */
+    private static class Command {
+
+        private int type;
+        private int handle;             // Voice, or 0 for all that match
+        private Object owner;           // Owner, or null for everyone
+        private SoundBank.Sound sound;  // Sound, or null for every sound
+        private float gain;
+        private int priority;
+        private int loops;
+        private int frames;             // Length of a ramp
+        private Envelope.Curve curve;
+        private boolean stop;           // Stop at the end of the ramp
+
+        public Command(int type, int handle, Object owner, SoundBank.Sound sound) {
+            this.type = type;
+            this.handle = handle;
+            this.owner = owner;
+            this.sound = sound;
+        }
+    }
+
+    /**
+     * A sound being played.
+     */
+    private static class Voice {
+
+        private volatile Object owner;   // Who started it, null if the voice is free
+        private volatile boolean paused;
+        private SoundBank.Sound sound;
+        private byte[] data;
+        private int channels;
+        private int frames;
+        private long position;           // Frame position in 16.16 fixed point
+        private int step;                // Frames to advance per output frame, 16.16
+        private float gain;
+        private Envelope envelope;       // Ramp of the gain, or null
+        private int priority;
+        private int loops;
+        private int handle;
+        private long started;
+    }
+
+    /**
+     * Creates a mixer with the default number of voices, that
+     * isn't connected to anything yet.
+     */
+    public SoundMixer() {
+        this(DEFAULT_VOICES);
+    }
+
+    /**
+     * Creates a mixer that isn't connected to anything yet.
+     *
+     * @param voicecount Number of sounds that can be played at once
+     */
+    public SoundMixer(int voicecount) {
+        voices = new Voice[voicecount];
+        for (int i = 0; i < voices.length; ++i) {
+            voices[i] = new Voice();
+        }
+        commands = new ConcurrentLinkedQueue<Command>();
+        nexthandle = new AtomicInteger(0);
+        mastergain = 1f;
+        mixbuffer = new int[BLOCK_FRAMES * 2];
+        outbuffer = new byte[BLOCK_FRAMES * 4];
+        sequence = 0;
+        framesmixed = 0;
+        stolen = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Retrieves the mixer shared by the whole game. The first time
+     * it's asked for, it's started playing on the sound card.
+     * If there's no sound card to play on, everything played
+     * on it is ignored.
+     *
+     * @return SoundMixer
+     */
+    public static synchronized SoundMixer getInstance() {
+        if (instance == null) {
+            instance = new SoundMixer();
+            try {
+                instance.open(new LineSink(BLOCK_FRAMES * 4 * LINE_BLOCKS));
+                instance.start();
+            } catch (LineUnavailableException ex) {
+                System.err.println("No sound: " + ex.getMessage());
+            } catch (IllegalArgumentException ex) {
+                // No line supports our format
+                System.err.println("No sound: " + ex.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Replaces the mixer shared by the whole game, e.g. with one
+     * mixing into an OfflineSink. Must be done before any sound
+     * is played.
+     *
+     * @param mixer
+     */
+    public static synchronized void setInstance(SoundMixer mixer) {
+        instance = mixer;
+    }
+
+    /**
+     * Checks if the shared mixer has been created.
+     *
+     * @return True if it has
+     */
+    public static synchronized boolean hasInstance() {
+        return instance != null;
+    }
+
+    /**
+     * Connects the mixer to where the mixed sound should go.
+     *
+     * @param sink
+     * @throws LineUnavailableException If the sink can't be opened
+     */
+    public synchronized void open(SoundSink sink) throws LineUnavailableException {
+        sink.open(FORMAT);
+        this.sink = sink;
+    }
+
+    /**
+     * Starts mixing in a thread of its own. The sink must
+     * pace the thread by blocking when it's full.
+     */
+    public synchronized void start() {
+        if (thread == null && sink != null) {
+            running = true;
+            thread = new Thread(this, "Sound mixer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the mixing thread, if there's one, and closes the sink.
+     */
+    public void shutdown() {
+        Thread old;
+        synchronized (this) {
+            running = false;
+            old = thread;
+            thread = null;
+        }
+        if (old != null) {
+            try {
+                old.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (sink != null) {
+                sink.close();
+                sink = null;
+            }
+        }
+    }
+
+    /**
+     * The mixing thread.
+     */
+    public void run() {
+        while (running) {
+            mix(BLOCK_FRAMES);
+        }
+    }
+
+    /**
+     * Starts playing a sound.
+     *
+     * @param sound Sound to play
+     * @param owner Who's playing it, used to stop it later
+     * @param gain Volume, 1.0 is the sound's own
+     * @param priority How important the sound is, when voices run out
+     * @param loops Number of times to play it again, or LOOP_FOREVER
+     * @return Handle to the voice, or 0 if there's nothing to play on
+     */
+    public int play(SoundBank.Sound sound, Object owner, float gain, int priority, int loops) {
+        if (sink == null || sound == null) {
+            return 0;
+        }
+        int handle = nexthandle.incrementAndGet();
+        Command command = new Command(PLAY, handle, owner, sound);
+        command.gain = gain;
+        command.priority = priority;
+        command.loops = loops;
+        commands.offer(command);
+        return handle;
+    }
+
+    /**
+     * Stops a single voice.
+     *
+     * @param handle Handle returned by play()
+     */
+    public void stop(int handle) {
+        send(new Command(STOP, handle, null, null));
+    }
+
+    /**
+     * Stops every voice playing a sound for an owner.
+     *
+     * @param owner Owner, or null for everyone
+     * @param sound Sound, or null for every sound
+     */
+    public void stop(Object owner, SoundBank.Sound sound) {
+        send(new Command(STOP, 0, owner, sound));
+    }
+
+    /**
+     * Pauses every voice playing a sound for an owner. They
+     * keep their position until they're resumed, but may be
+     * stolen by other sounds in the meantime.
+     *
+     * @param owner Owner, or null for everyone
+     * @param sound Sound, or null for every sound
+     */
+    public void pause(Object owner, SoundBank.Sound sound) {
+        send(new Command(PAUSE, 0, owner, sound));
+    }
+
+    /**
+     * Resumes paused voices.
+     *
+     * @param owner Owner, or null for everyone
+     * @param sound Sound, or null for every sound
+     */
+    public void resume(Object owner, SoundBank.Sound sound) {
+        send(new Command(RESUME, 0, owner, sound));
+    }
+
+    /**
+     * Changes the volume of every voice playing a sound for an owner.
+     * Any ramp they're on is cancelled.
+     *
+     * @param owner Owner, or null for everyone
+     * @param sound Sound, or null for every sound
+     * @param gain Volume, 1.0 is the sound's own
+     */
+    public void setGain(Object owner, SoundBank.Sound sound, float gain) {
+        Command command = new Command(GAIN, 0, owner, sound);
+        command.gain = gain;
+        send(command);
+    }
+
+    /**
+     * Ramps the volume of a single voice.
+     *
+     * @param handle Handle returned by play()
+     * @param gain Volume at the end of the ramp
+     * @param millis Length of the ramp
+     * @param curve Shape of the ramp
+     * @param stop True if the voice should be stopped at the end
+     */
+    public void ramp(int handle, float gain, long millis, Envelope.Curve curve, boolean stop) {
+        send(createRamp(RAMP, handle, null, null, gain, millis, curve, stop));
+    }
+
+    /**
+     * Ramps the volume of every voice playing a sound for an
+     * owner. The ramp starts from the volume they have, so it
+     * can take over from another ramp.
+     *
+     * @param owner Owner, or null for everyone
+     * @param sound Sound, or null for every sound
+     * @param gain Volume at the end of the ramp
+     * @param millis Length of the ramp
+     * @param curve Shape of the ramp
+     * @param stop True if the voices should be stopped at the end
+     */
+    public void ramp(Object owner, SoundBank.Sound sound, float gain, long millis,
+            Envelope.Curve curve, boolean stop) {
+        send(createRamp(RAMP, 0, owner, sound, gain, millis, curve, stop));
+    }
+
+    /**
+     * Changes the volume of everything.
+     *
+     * @param gain Volume, 1.0 is the sounds' own
+     */
+    public void setMasterGain(float gain) {
+        rampMasterGain(gain, 0, Envelope.LINEAR);
+    }
+
+    /**
+     * Ramps the volume of everything.
+     *
+     * @param gain Volume at the end of the ramp
+     * @param millis Length of the ramp
+     * @param curve Shape of the ramp
+     */
+    public void rampMasterGain(float gain, long millis, Envelope.Curve curve) {
+        if (sink == null) {
+            mastergain = gain;
+        } else {
+            send(createRamp(MASTER, 0, null, null, gain, millis, curve, false));
+        }
+    }
+
+    /**
+     * Current volume of everything.
+     *
+     * @return Volume
+     */
+    public float getMasterGain() {
+        return mastergain;
+    }
+
+    /**
+     * Checks if an owner has any sound playing.
+     *
+     * @param owner
+     * @return True if there's a sound playing
+     */
+    public boolean isPlaying(Object owner) {
+        for (Voice voice : voices) {
+            if (voice.owner == owner && !voice.paused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of voices playing or paused.
+     *
+     * @return Number of voices in use
+     */
+    public int getActiveVoiceCount() {
+        int active = 0;
+        for (Voice voice : voices) {
+            if (voice.owner != null) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Number of sounds that can be played at once.
+     *
+     * @return Number of voices
+     */
+    public int getVoiceCount() {
+        return voices.length;
+    }
+
+    /**
+     * Number of times a playing sound was cut off to make
+     * room for another.
+     *
+     * @return stolen
+     */
+    public long getStolenCount() {
+        return stolen;
+    }
+
+    /**
+     * Number of sounds that weren't played since all voices
+     * were busy with more important sounds.
+     *
+     * @return dropped
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Number of frames mixed so far.
+     *
+     * @return Frames
+     */
+    public long getFramesMixed() {
+        return framesmixed;
+    }
+
+    /**
+     * Carries out the commands sent so far and mixes a number
+     * of frames into the sink. Must only be called from one
+     * thread at a time: the mixing thread, if it's started.
+     *
+     * @param frames Number of frames to mix
+     */
+    public void mix(int frames) {
+        SoundSink out = sink;
+        if (out == null) {
+            return;
+        }
+        while (frames > 0) {
+            int count = Math.min(frames, BLOCK_FRAMES);
+            runCommands();
+            mixBlock(count);
+            out.write(outbuffer, count * 4);
+            framesmixed += count;
+            frames -= count;
+        }
+    }
+
+    /**
+     * Creates a command that ramps a volume.
+     */
+    private Command createRamp(int type, int handle, Object owner, SoundBank.Sound sound,
+            float gain, long millis, Envelope.Curve curve, boolean stop) {
+        Command command = new Command(type, handle, owner, sound);
+        command.gain = gain;
+        command.frames = (int) (millis * SAMPLE_RATE / 1000);
+        command.curve = curve;
+        command.stop = stop;
+        return command;
+    }
+
+    /**
+     * Queues a command, unless there's nothing to play on.
+     */
+    private void send(Command command) {
+        if (sink != null) {
+            commands.offer(command);
+        }
+    }
+
+    /**
+     * Carries out every queued command.
+     */
+    private void runCommands() {
+        Command command;
+        while ((command = commands.poll()) != null) {
+            if (command.type == PLAY) {
+                start(command);
+                continue;
+            } else if (command.type == MASTER) {
+                masterenvelope = new Envelope(mastergain, command.gain,
+                        command.frames, command.curve, false);
+                continue;
+            }
+            for (Voice voice : voices) {
+                if (!matches(voice, command)) {
+                    continue;
+                }
+                switch (command.type) {
+                    case STOP:
+                        free(voice);
+                        break;
+                    case PAUSE:
+                        voice.paused = true;
+                        break;
+                    case RESUME:
+                        voice.paused = false;
+                        break;
+                    case GAIN:
+                        voice.gain = command.gain;
+                        voice.envelope = null;
+                        break;
+                    case RAMP:
+                        if (voice.paused && command.stop) {
+                            // Won't be heard anyway
+                            free(voice);
+                        } else {
+                            voice.envelope = new Envelope(voice.gain, command.gain,
+                                    command.frames, command.curve, command.stop);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if a command applies to a voice.
+     */
+    private boolean matches(Voice voice, Command command) {
+        if (voice.owner == null) {
+            return false;
+        } else if (command.handle != 0) {
+            return voice.handle == command.handle;
+        } else {
+            return (command.owner == null || voice.owner == command.owner) &&
+                    (command.sound == null || voice.sound == command.sound);
+        }
+    }
+
+    /**
+     * Starts playing a sound on a free voice, or on one
+     * that's less important.
+     */
+    private void start(Command command) {
+        // Paused voices with the same sound are replaced,
+        // just like a clip is rewound when it's played again
+        for (Voice voice : voices) {
+            if (voice.paused && voice.owner == command.owner && voice.sound == command.sound) {
+                free(voice);
+            }
+        }
+
+        Voice chosen = null;
+        for (Voice voice : voices) {
+            if (voice.owner == null) {
+                chosen = voice;
+                break;
+            }
+            // Paused voices go first, then the least
+            // important, then the oldest
+            if (chosen == null || rank(voice) < rank(chosen) ||
+                    (rank(voice) == rank(chosen) && voice.started < chosen.started)) {
+                chosen = voice;
+            }
+        }
+        if (chosen.owner != null) {
+            if (rank(chosen) > command.priority) {
+                dropped++;
+                return;
+            }
+            stolen++;
+        }
+
+        SoundBank.Sound sound = command.sound;
+        AudioFormat format = sound.getFormat();
+        chosen.sound = sound;
+        chosen.data = sound.getData();
+        chosen.channels = format.getChannels();
+        chosen.frames = sound.getFrameCount();
+        chosen.position = 0;
+        chosen.step = (int) (format.getSampleRate() / SAMPLE_RATE * 65536);
+        chosen.gain = command.gain;
+        chosen.envelope = null;
+        chosen.priority = command.priority;
+        chosen.loops = command.loops;
+        chosen.handle = command.handle;
+        chosen.started = sequence++;
+        chosen.paused = false;
+        chosen.owner = command.owner != null ? command.owner : this;
+    }
+
+    /**
+     * How important a busy voice is when looking for one to steal.
+     */
+    private int rank(Voice voice) {
+        return voice.paused ? Integer.MIN_VALUE : voice.priority;
+    }
+
+    /**
+     * Makes a voice available again.
+     */
+    private void free(Voice voice) {
+        voice.owner = null;
+        voice.sound = null;
+        voice.data = null;
+        voice.envelope = null;
+        voice.paused = false;
+    }
+
+    /**
+     * Mixes every playing voice into the output buffer.
+     */
+    private void mixBlock(int count) {
+        int[] mixed = mixbuffer;
+        for (int i = 0; i < count * 2; ++i) {
+            mixed[i] = 0;
+        }
+
+        // Master volume at the start and end of the block
+        float master = mastergain;
+        float masterend = master;
+        if (masterenvelope != null) {
+            masterend = masterenvelope.advance(count);
+            if (masterenvelope.isFinished()) {
+                masterenvelope = null;
+            }
+            mastergain = masterend;
+        }
+
+        for (Voice voice : voices) {
+            if (voice.owner == null || voice.paused) {
+                continue;
+            }
+
+            // The volume is ramped from one frame to the next,
+            // between where it is now and where it is at the end
+            // of the block, in 16.16 fixed point
+            float gainstart = voice.gain;
+            boolean stopafter = false;
+            if (voice.envelope != null) {
+                voice.gain = voice.envelope.advance(count);
+                if (voice.envelope.isFinished()) {
+                    stopafter = voice.envelope.stopsAtEnd();
+                    voice.envelope = null;
+                }
+            }
+            long gain = (long) (gainstart * master * GAIN_ONE) << 16;
+            long gainend = (long) (voice.gain * masterend * GAIN_ONE) << 16;
+            long gainstep = (gainend - gain) / count;
+
+            byte[] data = voice.data;
+            int framebytes = voice.channels * 2;
+            int right = voice.channels > 1 ? 2 : 0;
+            long position = voice.position;
+
+            for (int f = 0; f < count; ++f) {
+                int index = (int) (position >> 16);
+                if (index >= voice.frames) {
+                    // Reached the end, play it again or let it go
+                    if (voice.loops == 0 || voice.frames == 0) {
+                        free(voice);
+                        break;
+                    }
+                    if (voice.loops > 0) {
+                        voice.loops--;
+                    }
+                    position -= (long) voice.frames << 16;
+                    index = (int) (position >> 16);
+                }
+                int b = index * framebytes;
+                int l = (data[b + 1] << 8) | (data[b] & 0xff);
+                int r = (data[b + right + 1] << 8) | (data[b + right] & 0xff);
+                int g = (int) (gain >> 16);
+                mixed[f * 2] += (l * g) >> 12;
+                mixed[f * 2 + 1] += (r * g) >> 12;
+                position += voice.step;
+                gain += gainstep;
+            }
+            voice.position = position;
+            if (stopafter) {
+                free(voice);
+            }
+        }
+
+        // Clip and convert to 16-bit little-endian
+        byte[] out = outbuffer;
+        for (int i = 0; i < count * 2; ++i) {
+            int sample = mixed[i];
+            if (sample > Short.MAX_VALUE) {
+                sample = Short.MAX_VALUE;
+            } else if (sample < Short.MIN_VALUE) {
+                sample = Short.MIN_VALUE;
+            }
+            out[i * 2] = (byte) sample;
+            out[i * 2 + 1] = (byte) (sample >> 8);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package projectuml;
 
+import java.awt.GraphicsEnvironment;
 import java.io.*;
 import java.util.*;
 import javax.sound.sampled.*;
@@ -9,14 +10,28 @@ import javax.sound.sampled.*;
  * 
  * Implements a basic sound player that can load
  * audio files automatically from a given path.
+ * The sounds themselves live in the SoundBank, and are shared
+ * with every other player that has loaded them. A player only
+ * knows them by their keynames, and holds a reference to them
+ * until it's closed. Everything is played on the SoundMixer,
+ * so a sound can be played again before it has finished. Fades,
+ * crossfades and ducking are volume ramps done by the mixer, so
+ * any number of them can run at once.
  *
+ * @see SoundBank
+ * @see SoundMixer
+ * @see Envelope
  * @author Jens Thuresson, Steve Eriksson
  */
-public class SoundPlayer implements LineListener {
+public class SoundPlayer {
 
+    // Default length of a fade
+    public static final long FADE_MILLIS = 16700;
+    // Length of a fade when switching between game states
+    public static final long TRANSITION_MILLIS = 600;
     private Boolean mute;
-    private Timer timer;
-    private Hashtable<String, Clip> clips;
+    private Hashtable<String, SoundBank.Sound> sounds;
+    private SoundMixer mixer;
 
     /**
      * Don't load any files
@@ -31,8 +46,7 @@ public class SoundPlayer implements LineListener {
      * @param path Path to search
      */
     public SoundPlayer(String path) {
-        timer = new Timer();
-        clips = new Hashtable<String, Clip>();
+        sounds = new Hashtable<String, SoundBank.Sound>();
         mute = false;
 
         if (path != null) {
@@ -47,6 +61,24 @@ public class SoundPlayer implements LineListener {
         }
     }
 
+    /**
+     * Creates a sound player suitable for where we're running.
+     * Without a display (java.awt.headless=true) there's usually
+     * no audio device either, and no one to listen, so we get a
+     * player that stays silent. Unless a mixer has been set up
+     * to mix into something else, that is.
+     * 
+     * @param path Path to search for sound files, or null
+     * @return SoundPlayer
+     */
+    public static SoundPlayer create(String path) {
+        if (GraphicsEnvironment.isHeadless() && !SoundMixer.hasInstance()) {
+            return new SilentSoundPlayer();
+        } else {
+            return new SoundPlayer(path);
+        }
+    }
+
     /**
      * Filter class that only accepts audio files.
      */
@@ -57,14 +89,26 @@ public class SoundPlayer implements LineListener {
         }
     }
 
+    /**
+     * Retrieves the mixer the sounds are played on.
+     *
+     * @return SoundMixer
+     */
+    private SoundMixer getMixer() {
+        if (mixer == null) {
+            mixer = SoundMixer.getInstance();
+        }
+        return mixer;
+    }
+
     /**
      * Stops all sound immediately.
      */
     public void mute() {
         mute = true;
-        timer.cancel();
-        for (Clip clip : clips.values()) {
-            clip.stop();
+        // Nothing to stop if we never played anything
+        if (mixer != null) {
+            mixer.stop(this, null);
         }
     }
 
@@ -99,55 +143,54 @@ public class SoundPlayer implements LineListener {
      * @return True if successful
      */
     public Boolean loadSound(String filename, String keyname) {
-        // Always assume failure
-        boolean success = false;
+        // Don't store twice
+        if (sounds.containsKey(keyname)) {
+            return true;
+        }
 
         try {
-            // Don't store twice
-            if (!clips.containsKey(keyname)) {
-                // Load the audio clip
-                File file = new File(filename);
-                AudioInputStream stream = AudioSystem.getAudioInputStream(file);
-                Clip clip = AudioSystem.getClip();
-                clip.addLineListener(this);
-                clip.open(stream);
-                clips.put(keyname, clip);
-                Thread.sleep(0);
-            }
-
-            // Loading was a success!
-            success = true;
+            SoundBank.Sound sound = SoundBank.getInstance().acquire(filename);
+            sounds.put(keyname, sound);
+            return true;
         } catch (FileNotFoundException ex) {
             System.err.println("Sound " + filename + " not loaded!");
         } catch (UnsupportedAudioFileException ex) {
             System.err.println(ex.getMessage());
         } catch (IOException ex) {
             System.err.println(ex.getMessage());
-        } catch (LineUnavailableException ex) {
-            System.err.println(ex.getMessage());
-        } catch (InterruptedException ex) {
-            // Dumb exception thrown by Thread.sleep
-        } finally {
-            return success;
         }
+        return false;
     }
 
     /**
-     * Plays a loaded file, if not muted.
+     * Fades out everything this player is playing, and gives back
+     * its sounds to the sound bank. The player can't play them
+     * anymore afterwards.
+     */
+    public void close() {
+        // The voices hold on to the sound data themselves,
+        // so they can finish fading out after we're gone
+        if (mixer != null) {
+            mixer.ramp(this, null, 0f, TRANSITION_MILLIS, Envelope.LINEAR, true);
+        }
+        for (SoundBank.Sound sound : sounds.values()) {
+            SoundBank.getInstance().release(sound);
+        }
+        sounds.clear();
+    }
+
+    /**
+     * Plays a loaded file, if not muted. If it's already
+     * playing, it's played once more on top of it.
      * 
      * @param name
      */
     public void play(String name) {
         if (!mute) {
-            try {
-                Clip clip = clips.get(name);
-                if (clip.isRunning() /* clip.isActive() */) {
-                    clip.stop();
-                }
-                // Rewind
-                clip.setFramePosition(0);
-                clip.start();
-            } catch (Exception ex) {
+            SoundBank.Sound sound = sounds.get(name);
+            if (sound != null) {
+                getMixer().play(sound, this, 1f, SoundMixer.PRIORITY_EFFECT, 0);
+            } else {
                 System.err.println("Sound " + name + " not found!");
             }
         }
@@ -161,15 +204,12 @@ public class SoundPlayer implements LineListener {
      */
     public void loopPlay(String name, int count) {
         if (!mute) {
-            try {
-                Clip clip = clips.get(name);
-                if (clip.isActive()) {
-                    clip.stop();
-                }
-                // Rewind
-                clip.setFramePosition(0);
-                clip.loop(count);
-            } catch (Exception ex) {
+            SoundBank.Sound sound = sounds.get(name);
+            if (sound != null) {
+                // Start over if it's already playing
+                getMixer().stop(this, sound);
+                getMixer().play(sound, this, 1f, SoundMixer.PRIORITY_MUSIC, count);
+            } else {
                 System.err.println("Sound " + name + " not found!");
             }
         }
@@ -181,33 +221,34 @@ public class SoundPlayer implements LineListener {
      * @param name
      */
     public void loopPlay(String name) {
-        loopPlay(name, Clip.LOOP_CONTINUOUSLY);
+        loopPlay(name, SoundMixer.LOOP_FOREVER);
     }
 
     /**
-     * Stops an active playing sound.
+     * Stops an active playing sound. It can be resumed
+     * where it was stopped.
      * 
      * @param name
      */
     public void stop(String name) {
-        try {
-            Clip clip = clips.get(name);
-            clip.stop();
-        } catch (Exception ex) {
+        SoundBank.Sound sound = sounds.get(name);
+        if (sound != null) {
+            getMixer().pause(this, sound);
+        } else {
             System.err.println("Sound " + name + " not found!");
         }
     }
 
     /**
-     * Resumes a previously stopped sound clip.
+     * Resumes a previously stopped sound.
      * 
      * @param name
      */
     public void resume(String name) {
-        try {
-            Clip clip = clips.get(name);
-            clip.start();
-        } catch (Exception ex) {
+        SoundBank.Sound sound = sounds.get(name);
+        if (sound != null) {
+            getMixer().resume(this, sound);
+        } else {
             System.err.println("Sound " + name + " not found!");
         }
     }
@@ -218,29 +259,36 @@ public class SoundPlayer implements LineListener {
      * @return
      */
     public Boolean isPlaying() {
-        if (mute) {
+        if (mute || mixer == null) {
             return false;
         } else {
-            for (Clip clip : clips.values()) {
-                // Break at the first active sound so
-                // we don't need to iterate over every clip
-                if (clip.isActive()) {
-                    return true;
-                }
-            }
-            return false;
+            return mixer.isPlaying(this);
         }
     }
 
     /**
-     * Starts fading out a playing sound.
+     * Starts fading out a playing sound. It's stopped once
+     * it can't be heard anymore.
      * 
-     * @param keyname Clip to fade out
+     * @param keyname Sound to fade out
      */
     public void fadeOut(String keyname) {
+        fadeOut(keyname, FADE_MILLIS, Envelope.DECIBEL);
+    }
+
+    /**
+     * Starts fading out a playing sound, and stops it at the end.
+     * 
+     * @param keyname Sound to fade out
+     * @param millis Length of the fade
+     * @param curve Shape of the fade
+     */
+    public void fadeOut(String keyname, long millis, Envelope.Curve curve) {
         if (!mute) {
-            Clip clip = clips.get(keyname);
-            timer.scheduleAtFixedRate(new FadeOutTask(clip), 0, 100);
+            SoundBank.Sound sound = sounds.get(keyname);
+            if (sound != null) {
+                getMixer().ramp(this, sound, 0f, millis, curve, true);
+            }
         }
     }
 
@@ -248,92 +296,114 @@ public class SoundPlayer implements LineListener {
      * Starts fading out all sounds playing
      */
     public void fadeOutEverything() {
-        if (!mute) {
-            for (Clip clip : clips.values()) {
-                timer.scheduleAtFixedRate(new FadeOutTask(clip), 0, 100);
-            }
-        }
+        fadeOutEverything(FADE_MILLIS, Envelope.DECIBEL);
     }
 
     /**
-     * Outputs debug information.
+     * Starts fading out all sounds playing, and stops them at the end.
+     * 
+     * @param millis Length of the fade
+     * @param curve Shape of the fade
      */
-    public void debugDump() {
-        System.out.println("--- SoundPlayer ---");
-        for (Map.Entry<String, Clip> key : clips.entrySet()) {
-            System.out.println(key.getKey() + ": " + key.getValue().toString());
+    public void fadeOutEverything(long millis, Envelope.Curve curve) {
+        if (!mute && mixer != null) {
+            mixer.ramp(this, null, 0f, millis, curve, true);
         }
+    }
 
-        System.out.println("   --- Mixer ---");
-        try {
-            Mixer mixer = AudioSystem.getMixer(null);
-            System.out.println(mixer);
-        } catch (Exception ex) {
-            ex.printStackTrace();
+    /**
+     * Loops a sound forever, starting out silent and
+     * fading in.
+     * 
+     * @param keyname Sound to fade in
+     * @param millis Length of the fade
+     * @param curve Shape of the fade
+     */
+    public void fadeIn(String keyname, long millis, Envelope.Curve curve) {
+        if (!mute) {
+            SoundBank.Sound sound = sounds.get(keyname);
+            if (sound != null) {
+                getMixer().stop(this, sound);
+                int handle = getMixer().play(sound, this, 0f,
+                        SoundMixer.PRIORITY_MUSIC, SoundMixer.LOOP_FOREVER);
+                getMixer().ramp(handle, 1f, millis, curve, false);
+            } else {
+                System.err.println("Sound " + keyname + " not found!");
+            }
         }
+    }
 
-        System.out.println("-------------------");
+    /**
+     * Fades out one sound while another one is faded in
+     * and looped.
+     * 
+     * @param from Sound to fade out
+     * @param to Sound to fade in
+     * @param millis Length of the crossfade
+     */
+    public void crossFade(String from, String to, long millis) {
+        fadeOut(from, millis, Envelope.EQUAL_POWER);
+        fadeIn(to, millis, Envelope.EQUAL_POWER);
     }
 
     /**
-     * Outputs debug information about a certain clip
-     * @param keyname.
+     * Lowers the volume of a sound, e.g. to make something
+     * else heard over the music. It keeps playing.
      * 
+     * @param keyname Sound to duck
+     * @param gain Volume to lower it to
+     * @param millis Time it takes to get there
      */
-    public void debugDump(String keyname) {
-        System.out.println("--- SoundPlayer, clip: " + keyname + " ---");
-        Clip clip = clips.get(keyname);
-        Control[] controls = clip.getControls();
-        for (Control control : controls) {
-            System.out.println(control.getType() + ", " + control.toString());
+    public void duck(String keyname, float gain, long millis) {
+        if (!mute) {
+            SoundBank.Sound sound = sounds.get(keyname);
+            if (sound != null) {
+                getMixer().ramp(this, sound, gain, millis, Envelope.SMOOTH, false);
+            }
         }
-        System.out.println(clip.getFormat());
-        System.out.println("-------------------");
     }
 
     /**
-     * Receives updates from loaded clips.
+     * Brings a ducked sound back to its own volume.
      * 
-     * @param event
+     * @param keyname Sound to bring back
+     * @param millis Time it takes to get there
      */
-    public void update(LineEvent event) {
-        //System.out.println("SoundPlayer: " + event.toString());
+    public void unduck(String keyname, long millis) {
+        duck(keyname, 1f, millis);
     }
 
     /**
-     * A task that fades out a clip under a certain amount
-     * of time.
+     * Outputs debug information.
      */
-    private class FadeOutTask extends TimerTask {
-
-        private Clip clip;
-        private FloatControl volume;
-        private float x;
-        private final float STEP_AMOUNT = 0.006f;
-        private float start;
-
-        public FadeOutTask(Clip clip) {
-            this.clip = clip;
-            volume = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-            start = volume.getValue();
-            x = 0.0f;
+    public void debugDump() {
+        System.out.println("--- SoundPlayer ---");
+        for (Map.Entry<String, SoundBank.Sound> key : sounds.entrySet()) {
+            System.out.println(key.getKey() + ": " + key.getValue().getFile());
         }
 
-        /**
-         * Decreases the volume until not heared.
-         */
-        public void run() {
-            float vol = -80 * x;
-            if (vol > volume.getMinimum()) {
-                volume.setValue(vol);
-            } else {
-                // We've reached bottom, turn off the sound and
-                // restore original volume
-                clip.stop();
-                volume.setValue(start);
-                this.cancel();
-            }
-            x += STEP_AMOUNT;
+        System.out.println("   --- Mixer ---");
+        SoundMixer m = getMixer();
+        System.out.println("Voices:  " + m.getActiveVoiceCount() + "/" + m.getVoiceCount());
+        System.out.println("Stolen:  " + m.getStolenCount());
+        System.out.println("Dropped: " + m.getDroppedCount());
+
+        System.out.println("-------------------");
+    }
+
+    /**
+     * Outputs debug information about a certain sound
+     * @param keyname.
+     * 
+     */
+    public void debugDump(String keyname) {
+        System.out.println("--- SoundPlayer, sound: " + keyname + " ---");
+        SoundBank.Sound sound = sounds.get(keyname);
+        if (sound != null) {
+            System.out.println(sound.getFile());
+            System.out.println(sound.getFormat());
+            System.out.println(sound.getFrameCount() + " frames");
         }
+        System.out.println("-------------------");
     }
 }
@@ -0,0 +1,31 @@
+package projectuml;
+
+import javax.sound.sampled.*;
+
+/**
+ * SoundSink
+ * 
+ * Somewhere for the SoundMixer to send its mixed sound,
+ * e.g. a sound card or a buffer in memory.
+ *
+ * @see SoundMixer
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public interface SoundSink {
+
+    /**
+     * Gets ready to receive sound in a certain format.
+     */
+    public abstract void open(AudioFormat format) throws LineUnavailableException;
+
+    /**
+     * Receives a block of mixed sound. May block until
+     * there's room for it.
+     */
+    public abstract void write(byte[] data, int length);
+
+    /**
+     * Lets go of whatever the sink holds.
+     */
+    public abstract void close();
+}
@@ -3,7 +3,6 @@ package projectuml;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.*;
-import javax.imageio.ImageIO;
 import java.io.*;
 
 /**
@@ -14,20 +13,39 @@ import java.io.*;
  * The sprite has methods for painting itself onscreen, update its
  * state and position.
  * Both the path imageFile and the image should be set by subclass.
+ * The position and flags are kept in plain fields, so that reading
+ * and changing them never allocates. They're serialized the way they
+ * used to be, as a Point and two Booleans, so that old levels load.
  *
  * @author Steve Eriksson, Jens Thuresson
  */
 public class Sprite implements Serializable {
 
     private static final long serialVersionUID = 1l;
-    private Point position;      // Objects upper left corner
-    private Boolean visible;     // TRUE = object performs draw()
-    private Boolean active;      // TRUE = object performs update()
+    // The fields as they're serialized
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("position", Point.class),
+        new ObjectStreamField("visible", Boolean.class),
+        new ObjectStreamField("active", Boolean.class),
+        new ObjectStreamField("width", Integer.TYPE),
+        new ObjectStreamField("height", Integer.TYPE),
+        new ObjectStreamField("imageFile", String.class),
+        new ObjectStreamField("touch", TouchBehaviour.class)
+    };
+    private int x;               // Objects upper left corner
+    private int y;
+    private boolean visible;     // TRUE = object performs draw()
+    private boolean active;      // TRUE = object performs update()
     private int width;           // Should be set if inShape is used
     private int height;
     transient private BufferedImage image; // Graphic representing this object
+    transient private SpriteAtlas.Region region; // Where the image is in the atlas, or null
     private String imageFile;    // Path to image
+    transient private String heldImageFile; // Image we hold a cache reference to
     private TouchBehaviour touch;
+    transient private int capturex;       // Position at the last capture
+    transient private int capturey;
+    transient private boolean captured;
 
     /** 
      * Creates a new instance of Sprite and load
@@ -36,7 +54,8 @@ public class Sprite implements Serializable {
      * to match the loaded image.
      */
     public Sprite() {
-        position = new Point(0, 0); // Default placement for sprites
+        x = 0; // Default placement for sprites
+        y = 0;
         hide();
         deactivate();
     }
@@ -50,50 +69,32 @@ public class Sprite implements Serializable {
     }
 
     /**
-     * Load image asset and create a BufferedImage.
-     * Make the image compatible to the graphics device
-     * for hardware acceleration. This requires us to copy
-     * the input image.
+     * Load image asset through the shared image cache. The image
+     * is decoded and made compatible to the graphics device only
+     * the first time a file is requested.
+     * The caller holds a reference to the returned image and
+     * should give it back to the ImageCache when done with it.
      * 
      * @param absolute file path -> path/name.xyz
      */
     public BufferedImage loadImage(String file) {
-        // Get device's graphics configuration
-        GraphicsEnvironment ge;
-        ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsConfiguration gc;
-        gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
-
-        try {
-            BufferedImage bi, biCopy;
-            // If image is loaded from a jar-archive we need to treat the
-            // file path as a URL
-            bi = ImageIO.read(new File(file));
-
-            // Get the image transparency information
-            int transparency = bi.getColorModel().getTransparency();
-
-            // Here is were the optimization takes place by making the 
-            // image compatible with the device's graphics 
-            biCopy = gc.createCompatibleImage(bi.getWidth(), bi.getHeight(), transparency);
-
-            // Create a graphics context to draw on
-            Graphics2D g2d = biCopy.createGraphics();
-
-            // Copy image 
-            g2d.drawImage(bi, 0, 0, null);
-            g2d.dispose();
-
+        BufferedImage image = ImageCache.getInstance().acquire(file);
+        if (image != null) {
             // Remember filename
             imageFile = file;
-
-            // Return the copied and optimized image
-            return biCopy;
-
-        } catch (IOException e) {
-            return null;
         }
+        return image;
+    }
 
+    /**
+     * Gives back the reference this sprite holds to its
+     * image in the cache.
+     */
+    public void releaseImage() {
+        if (heldImageFile != null) {
+            ImageCache.getInstance().release(heldImageFile);
+            heldImageFile = null;
+        }
     }
 
     /**
@@ -106,8 +107,49 @@ public class Sprite implements Serializable {
      */
     public void draw(Graphics2D g2D) {
         if (visible) {
-            g2D.drawImage(image, getIntPositionX(), getIntPositionY(), null);
+            if (region != null) {
+                region.draw(g2D, x, y);
+            } else {
+                g2D.drawImage(image, x, y, null);
+            }
+        }
+    }
+
+    /**
+     * Add the sprite to a render snapshot, if the
+     * visibility flag is set to true. The position it had
+     * at the previous capture goes along, so that the
+     * renderer can move it smoothly between the two.
+     * 
+     * @param snapshot RenderSnapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        if (visible) {
+            snapshot.addImage(image, region, getPreviousX(), getPreviousY(), x, y);
         }
+        capturex = x;
+        capturey = y;
+        captured = true;
+    }
+
+    /**
+     * Position at the previous capture, or the current
+     * position if it hasn't been captured.
+     * 
+     * @return x
+     */
+    public int getPreviousX() {
+        return captured ? capturex : x;
+    }
+
+    /**
+     * Position at the previous capture, or the current
+     * position if it hasn't been captured.
+     * 
+     * @return y
+     */
+    public int getPreviousY() {
+        return captured ? capturey : y;
     }
 
     /**
@@ -133,9 +175,20 @@ public class Sprite implements Serializable {
      * @return true or false
      */
     public boolean inShape(Point p) {
-        if (p.getX() < position.getX() || p.getX() > position.getX() + width) {
+        return inShape(p.x, p.y);
+    }
+
+    /**
+     * Check if a point is within this objects boundries.
+     *
+     * @param px
+     * @param py
+     * @return true or false
+     */
+    public boolean inShape(int px, int py) {
+        if (px < x || px > x + width) {
             return false;
-        } else if (p.getY() < position.getY() || p.getY() > position.getY() + height) {
+        } else if (py < y || py > y + height) {
             return false;
         } else {
             return true;
@@ -180,9 +233,9 @@ public class Sprite implements Serializable {
     /**
      * Check if sprite is active
      * 
-     * @return Boolean
+     * @return boolean
      */
-    public Boolean isActive() {
+    public boolean isActive() {
         return active;
     }
 
@@ -205,12 +258,13 @@ public class Sprite implements Serializable {
     }
 
     /**
-     * Get sprite's position.
+     * Get a copy of sprite's position. Use getIntPositionX()
+     * and getIntPositionY() where it's done often.
      * 
      * @return position
      */
     public Point getPosition() {
-        return this.position;
+        return new Point(x, y);
     }
 
     /**
@@ -219,7 +273,7 @@ public class Sprite implements Serializable {
      * @return x integer
      */
     public int getIntPositionX() {
-        return (int) position.getX();
+        return x;
     }
 
     /**
@@ -228,7 +282,7 @@ public class Sprite implements Serializable {
      * @return y integer
      */
     public int getIntPositionY() {
-        return (int) position.getY();
+        return y;
     }
 
     /**
@@ -237,7 +291,7 @@ public class Sprite implements Serializable {
      * @return x double
      */
     public double getPositionX() {
-        return position.getX();
+        return x;
     }
 
     /**
@@ -246,7 +300,7 @@ public class Sprite implements Serializable {
      * @return y double
      */
     public double getPositionY() {
-        return position.getY();
+        return y;
     }
 
     /**
@@ -255,25 +309,31 @@ public class Sprite implements Serializable {
      * @param newPosition
      */
     public void setPosition(Point newPosition) {
-        position.setLocation(newPosition);
+        x = newPosition.x;
+        y = newPosition.y;
     }
 
     /**
-     * Set new position for sprite.
+     * Set new position for sprite, rounded
+     * to the nearest pixel.
      * 
-     * @param newPosition
+     * @param x New position in x
+     * @param y New position in y
      */
     public void setPosition(double x, double y) {
-        position.setLocation(x, y);
+        this.x = (int) Math.floor(x + 0.5);
+        this.y = (int) Math.floor(y + 0.5);
     }
 
     /**
      * Set new position for sprite.
      * 
-     * @param newPosition
+     * @param x New position in x
+     * @param y New position in y
      */
     public void setPosition(int x, int y) {
-        position.setLocation(x, y);
+        this.x = x;
+        this.y = y;
     }
 
     /**
@@ -283,7 +343,8 @@ public class Sprite implements Serializable {
      * @param dy
      */
     public void updatePosition(int dx, int dy) {
-        position.translate(dx, dy);
+        x += dx;
+        y += dy;
     }
 
     /**
@@ -337,7 +398,13 @@ public class Sprite implements Serializable {
      * @param filename
      */
     public void loadImageFrom(String filename) {
-        setImage(loadImage(filename));
+        BufferedImage loaded = loadImage(filename);
+        // Let go of the image we used to have
+        releaseImage();
+        if (loaded != null) {
+            heldImageFile = filename;
+        }
+        setImage(loaded);
     }
 
     /**
@@ -346,7 +413,19 @@ public class Sprite implements Serializable {
      * @param image
      */
     public void setImage(BufferedImage image) {
+        setImage(image, ImageCache.getInstance().getRegion(image));
+    }
+
+    /**
+     * Alters the image directly, when it's already known
+     * where it is in the atlas.
+     * 
+     * @param image
+     * @param region Where the image is in the atlas, or null
+     */
+    protected void setImage(BufferedImage image, SpriteAtlas.Region region) {
         this.image = image;
+        this.region = region;
         if (image != null) {
             width = image.getWidth();
             height = image.getHeight();
@@ -362,6 +441,24 @@ public class Sprite implements Serializable {
         return imageFile;
     }
 
+    /**
+     * Writes the sprite the way it has always been serialized.
+     * 
+     * @param out Stream to write to
+     * @throws java.io.IOException
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("position", new Point(x, y));
+        fields.put("visible", Boolean.valueOf(visible));
+        fields.put("active", Boolean.valueOf(active));
+        fields.put("width", width);
+        fields.put("height", height);
+        fields.put("imageFile", imageFile);
+        fields.put("touch", touch);
+        out.writeFields();
+    }
+
     /**
      * Provides custom serialization by restoring the image
      * @param in Stream to read from
@@ -369,7 +466,20 @@ public class Sprite implements Serializable {
      * @throws java.lang.ClassNotFoundException
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
+        ObjectInputStream.GetField fields = in.readFields();
+        Point position = (Point) fields.get("position", null);
+        if (position != null) {
+            x = position.x;
+            y = position.y;
+        }
+        Boolean wasvisible = (Boolean) fields.get("visible", null);
+        visible = wasvisible != null && wasvisible.booleanValue();
+        Boolean wasactive = (Boolean) fields.get("active", null);
+        active = wasactive != null && wasactive.booleanValue();
+        width = fields.get("width", 0);
+        height = fields.get("height", 0);
+        imageFile = (String) fields.get("imageFile", null);
+        touch = (TouchBehaviour) fields.get("touch", null);
         if (imageFile != null) {
             loadImageFrom(imageFile);
         }
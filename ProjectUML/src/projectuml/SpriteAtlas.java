@@ -0,0 +1,308 @@
+package projectuml;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import javax.imageio.ImageIO;
+
+/**
+ * SpriteAtlas
+ *
+ * All the sprite images of the game packed into one, or a few, large
+ * images called pages. Drawing every sprite from the same page means
+ * Java2D doesn't have to switch between images all the time, and the
+ * small images don't each carry their own overhead.
+ * Images are packed on shelves: sorted by height, and placed side by
+ * side in rows as high as the tallest image in them. A page is never
+ * larger than it needs to be. Images that don't fit on a page aren't
+ * packed at all.
+ * Each packed image is a region of a page, which can be looked up by
+ * the file name of the image, or by the image view the ImageCache hands
+ * out for it. The atlas never changes once it has been built, so it
+ * can be read from any thread.
+ *
+ * @see ImageCache
+ * @see Sprite
+ * @author Steve Eriksson, Jens Thuresson
+ */
+public class SpriteAtlas {
+
+    public static final int DEFAULT_PAGE_SIZE = 256;
+    // Space between images, so they never bleed into each other
+    private static final int PADDING = 1;
+    private ArrayList<BufferedImage> pages;
+    private HashMap<String, Region> regions;
+    private IdentityHashMap<BufferedImage, Region> views;
+
+    /**
+     * Where an image is in the atlas.
+     */
+    public static class Region {
+
+        private BufferedImage page;
+        private BufferedImage view;
+        private int x;
+        private int y;
+        private int width;
+        private int height;
+
+        private Region(BufferedImage page, int x, int y, int width, int height) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            view = page.getSubimage(x, y, width, height);
+        }
+
+        /**
+         * Draws the region straight from its page.
+         *
+         * @param g2D
+         * @param dx Where to draw it
+         * @param dy
+         */
+        public void draw(Graphics2D g2D, int dx, int dy) {
+            g2D.drawImage(page, dx, dy, dx + width, dy + height,
+                    x, y, x + width, y + height, null);
+        }
+
+        /**
+         * Image sharing its pixels with the region. This is what
+         * sprites hold on to, and what the region is looked up by.
+         *
+         * @return view
+         */
+        public BufferedImage getView() {
+            return view;
+        }
+
+        /**
+         * Page the region is on.
+         *
+         * @return page
+         */
+        public BufferedImage getPage() {
+            return page;
+        }
+
+        /**
+         * Position of the region on its page.
+         *
+         * @return x
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Position of the region on its page.
+         *
+         * @return y
+         */
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Width of the image.
+         *
+         * @return width
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Height of the image.
+         *
+         * @return height
+         */
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    /**
+     * Creates an empty atlas.
+     */
+    private SpriteAtlas() {
+        pages = new ArrayList<BufferedImage>();
+        regions = new HashMap<String, Region>();
+        views = new IdentityHashMap<BufferedImage, Region>();
+    }
+
+    /**
+     * Packs every PNG image in a directory. The images are
+     * known by their file names alone.
+     *
+     * @param directory Directory to search
+     * @param pagesize Max width and height of a page
+     * @return SpriteAtlas
+     */
+    public static SpriteAtlas build(File directory, int pagesize) {
+        LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<String, BufferedImage>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            // Same packing every time
+            Arrays.sort(files);
+            for (File file : files) {
+                if (!file.getName().endsWith(".png")) {
+                    continue;
+                }
+                try {
+                    BufferedImage image = ImageIO.read(file);
+                    if (image != null) {
+                        images.put(file.getName(), image);
+                    }
+                } catch (IOException ex) {
+                    System.err.println("Image " + file + " not packed: " + ex.getMessage());
+                }
+            }
+        }
+        return build(images, pagesize);
+    }
+
+    /**
+     * Packs a number of images.
+     *
+     * @param images Images by name
+     * @param pagesize Max width and height of a page
+     * @return SpriteAtlas
+     */
+    public static SpriteAtlas build(Map<String, BufferedImage> images, int pagesize) {
+        SpriteAtlas atlas = new SpriteAtlas();
+
+        // Tallest first, so each shelf is filled with
+        // images of about the same height
+        ArrayList<Map.Entry<String, BufferedImage>> sorted =
+                new ArrayList<Map.Entry<String, BufferedImage>>(images.entrySet());
+        Collections.sort(sorted, new Comparator<Map.Entry<String, BufferedImage>>() {
+
+            public int compare(Map.Entry<String, BufferedImage> a, Map.Entry<String, BufferedImage> b) {
+                int diff = b.getValue().getHeight() - a.getValue().getHeight();
+                return diff != 0 ? diff : a.getKey().compareTo(b.getKey());
+            }
+        });
+
+        // Work out where everything goes first, so that each
+        // page can be made just large enough to hold its images
+        ArrayList<Point> places = new ArrayList<Point>();
+        ArrayList<Integer> onpage = new ArrayList<Integer>();
+        ArrayList<Dimension> pagesizes = new ArrayList<Dimension>();
+        int shelfx = 0;
+        int shelfy = 0;
+        int shelfheight = 0;
+        for (Map.Entry<String, BufferedImage> entry : sorted) {
+            BufferedImage image = entry.getValue();
+            int width = image.getWidth();
+            int height = image.getHeight();
+            if (width + PADDING > pagesize || height + PADDING > pagesize) {
+                // Too large, leave it to the image cache
+                places.add(null);
+                onpage.add(-1);
+                continue;
+            }
+
+            // Next shelf, or next page
+            if (!pagesizes.isEmpty() && shelfx + width + PADDING > pagesize) {
+                shelfx = 0;
+                shelfy += shelfheight;
+                shelfheight = 0;
+            }
+            if (pagesizes.isEmpty() || shelfy + height + PADDING > pagesize) {
+                pagesizes.add(new Dimension(0, 0));
+                shelfx = 0;
+                shelfy = 0;
+                shelfheight = 0;
+            }
+
+            Dimension used = pagesizes.get(pagesizes.size() - 1);
+            used.width = Math.max(used.width, shelfx + width);
+            used.height = Math.max(used.height, shelfy + height);
+            places.add(new Point(shelfx, shelfy));
+            onpage.add(pagesizes.size() - 1);
+            shelfx += width + PADDING;
+            shelfheight = Math.max(shelfheight, height + PADDING);
+        }
+
+        Graphics2D[] graphics = new Graphics2D[pagesizes.size()];
+        for (int i = 0; i < pagesizes.size(); ++i) {
+            Dimension used = pagesizes.get(i);
+            BufferedImage page = ImageCache.createCompatibleImage(used.width, used.height,
+                    Transparency.TRANSLUCENT);
+            atlas.pages.add(page);
+            graphics[i] = page.createGraphics();
+            graphics[i].setComposite(AlphaComposite.Src);
+        }
+        for (int i = 0; i < sorted.size(); ++i) {
+            int pageindex = onpage.get(i);
+            if (pageindex < 0) {
+                continue;
+            }
+            BufferedImage image = sorted.get(i).getValue();
+            Point place = places.get(i);
+            graphics[pageindex].drawImage(image, place.x, place.y, null);
+            Region region = new Region(atlas.pages.get(pageindex), place.x, place.y,
+                    image.getWidth(), image.getHeight());
+            atlas.regions.put(sorted.get(i).getKey(), region);
+            atlas.views.put(region.getView(), region);
+        }
+        for (Graphics2D g2D : graphics) {
+            g2D.dispose();
+        }
+        return atlas;
+    }
+
+    /**
+     * Looks up an image by its file name.
+     *
+     * @param file
+     * @return Region, or null if the image isn't packed
+     */
+    public Region getRegion(String file) {
+        return regions.get(file);
+    }
+
+    /**
+     * Looks up an image by the view of it.
+     *
+     * @param view
+     * @return Region, or null if it isn't a view into the atlas
+     */
+    public Region getRegion(BufferedImage view) {
+        return views.get(view);
+    }
+
+    /**
+     * Number of images packed.
+     *
+     * @return Number of regions
+     */
+    public int size() {
+        return regions.size();
+    }
+
+    /**
+     * Number of pages the images are packed on.
+     *
+     * @return Number of pages
+     */
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Approximate amount of memory held by the pages.
+     *
+     * @return Bytes
+     */
+    public long getBytesHeld() {
+        long bytes = 0;
+        for (BufferedImage page : pages) {
+            bytes += ImageCache.sizeOf(page);
+        }
+        return bytes;
+    }
+}
@@ -12,11 +12,14 @@ import java.io.Serializable;
  */
 public class StarField extends Scenery {
 
+    private static final long serialVersionUID = 4255850811115530734L;
+
     /**
      * A single star in space
      */
     private class Star implements Serializable {
 
+        private static final long serialVersionUID = -7995885463052014303L;
         private int x;
         private int y;
         private int deltax;
@@ -65,6 +68,15 @@ public class StarField extends Scenery {
             return y;
         }
 
+        /**
+         * Adds the star to a snapshot.
+         *
+         * @param snapshot
+         */
+        public void capture(RenderSnapshot snapshot) {
+            snapshot.addPoint(x - deltax, y - deltay, x, y, color);
+        }
+
         /**
          * Makes the star travel
          */
@@ -95,18 +107,54 @@ public class StarField extends Scenery {
      * @param Amount of stars
      */
     public StarField(int amount) {
+        this(amount, new RandomSource());
+    }
+
+    /**
+     * Generates a star field, placing the stars
+     * with numbers from a random source.
+     *
+     * @param Amount of stars
+     * @param random
+     */
+    public StarField(int amount, RandomSource random) {
+        place(amount, random);
+    }
+
+    /**
+     * Places the stars anew, with numbers from a random source.
+     *
+     * @param random
+     */
+    public void setRandom(RandomSource random) {
+        place(stars.length, random);
+    }
+
+    /**
+     * Places a number of stars.
+     */
+    private void place(int amount, RandomSource random) {
         //stars = new ArrayList<Star>(amount);
         stars = new Star[amount];
         for (int i = 0; i < amount; ++i) {
-            int x = Randomizer.getRandomNumber(0, 640);
-            int y = Randomizer.getRandomNumber(0, 480);
-            int dx = Randomizer.getRandomNumber(1, 3);
-            float brightness = Randomizer.getRandomFloat();
+            int x = random.getNumber(0, 640);
+            int y = random.getNumber(0, 480);
+            int dx = random.getNumber(1, 3);
+            float brightness = random.getFloat();
             //stars.add(new Star(x, y, -dx, 0, brightness));
             stars[i] = new Star(x, y, -dx, 0, brightness);
         }
     }
 
+    /**
+     * Number of stars in the field.
+     *
+     * @return Amount of stars
+     */
+    public int getAmount() {
+        return stars.length;
+    }
+
     /**
      * Update the star field.
      */
@@ -116,6 +164,17 @@ public class StarField extends Scenery {
         }
     }
 
+    /**
+     * Adds the stars to a snapshot.
+     *
+     * @param snapshot
+     */
+    public void capture(RenderSnapshot snapshot) {
+        for (Star star : stars) {
+            star.capture(snapshot);
+        }
+    }
+
     /**
      * Paints the star field.
      *
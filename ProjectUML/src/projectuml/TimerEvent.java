@@ -0,0 +1,59 @@
+package projectuml;
+
+/**
+ * TimerEvent
+ *
+ * Something that's to happen at a certain tick, scheduled on a
+ * TimerWheel. The event holds its own links in the wheel, so
+ * scheduling and cancelling it never creates anything, and an event
+ * is usually created once and scheduled over and over again.
+ * An event is in at most one wheel at a time. Scheduling it again
+ * moves it.
+ *
+ * @see TimerWheel
+ * @see Level
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public abstract class TimerEvent {
+
+    TimerEvent next;      // Links in the slot of the wheel
+    TimerEvent previous;
+    TimerWheel wheel;     // Wheel it's scheduled on, or null
+    long deadline;        // Tick it's due at
+
+    /**
+     * Called by the wheel once the event is due. The event
+     * is no longer scheduled, so it may schedule itself again.
+     *
+     * @param level Level the wheel belongs to
+     */
+    public abstract void fire(Level level);
+
+    /**
+     * Check if the event is waiting in a wheel.
+     *
+     * @return True if it is
+     */
+    public boolean isScheduled() {
+        return wheel != null;
+    }
+
+    /**
+     * Tick the event is due at.
+     *
+     * @return Tick, only meaningful while it's scheduled
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Takes the event out of its wheel, if it's in one.
+     * Must be called on the thread that steps the wheel.
+     */
+    public void cancel() {
+        if (wheel != null) {
+            wheel.remove(this);
+        }
+    }
+}
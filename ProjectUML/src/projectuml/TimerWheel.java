@@ -0,0 +1,226 @@
+package projectuml;
+
+/**
+ * TimerWheel
+ *
+ * Calls TimerEvents when the tick they're due at has come. Instead of
+ * every gunner, weapon and animation checking a timestamp on every
+ * tick, they schedule an event and are left alone until it's due, so
+ * a tick only costs as much as the events that are due in it.
+ * The events are kept in four wheels of 64 slots each. The first wheel
+ * has a slot for each of the next 64 ticks, the second a slot for each
+ * of the next 64 times 64 ticks, and so on. Once the first wheel has
+ * gone round, the next slot of the second wheel is emptied into it,
+ * and the same between the other wheels. Events further off than the
+ * last wheel reaches wait in its farthest slot until they're closer.
+ * Events due at the same tick are fired in the order they were
+ * scheduled.
+ * A tick is GameLoop.TICK_MILLIS of game time. The level steps its
+ * wheel along with the GameClock, so the events stand still while
+ * the clock is paused.
+ *
+ * @see TimerEvent
+ * @see Level
+ * @see GameClock
+ * @author Jens Thuresson, Steve Eriksson
+ */
+public class TimerWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int WHEELS = 4;
+    private TimerEvent[][] slots; // Head of each slot, linked in a ring
+    private long now;             // Latest tick stepped to
+    private int count;
+
+    /**
+     * A slot's head, which is never fired.
+     */
+    private static class Head extends TimerEvent {
+
+        public void fire(Level level) {
+        }
+    }
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param start Tick to start at
+     */
+    public TimerWheel(long start) {
+        now = start;
+        count = 0;
+        slots = new TimerEvent[WHEELS][SLOTS];
+        for (int w = 0; w < WHEELS; ++w) {
+            for (int s = 0; s < SLOTS; ++s) {
+                TimerEvent head = new Head();
+                head.next = head;
+                head.previous = head;
+                slots[w][s] = head;
+            }
+        }
+    }
+
+    /**
+     * Number of ticks an amount of game time covers, rounded up.
+     *
+     * @param millis Time in milliseconds
+     * @return Ticks
+     */
+    public static long toTicks(long millis) {
+        return (millis + GameLoop.TICK_MILLIS - 1) / GameLoop.TICK_MILLIS;
+    }
+
+    /**
+     * Schedules an event a number of ticks from now. An
+     * event that's already scheduled is moved.
+     *
+     * @param event
+     * @param delay Ticks, at least 1
+     */
+    public void schedule(TimerEvent event, long delay) {
+        if (event.wheel != null) {
+            event.wheel.remove(event);
+        }
+        event.deadline = now + Math.max(1, delay);
+        event.wheel = this;
+        insert(event);
+        count++;
+    }
+
+    /**
+     * Puts an event in the slot its deadline belongs in.
+     */
+    private void insert(TimerEvent event) {
+        long delta = event.deadline - now;
+        int wheel = 0;
+        long reach = SLOTS;
+        while (wheel < WHEELS - 1 && delta >= reach) {
+            wheel++;
+            reach <<= BITS;
+        }
+        long tick = delta < reach ? event.deadline : now + reach - 1;
+        TimerEvent head = slots[wheel][(int) (tick >>> (wheel * BITS)) & MASK];
+        event.previous = head.previous;
+        event.next = head;
+        head.previous.next = event;
+        head.previous = event;
+    }
+
+    /**
+     * Takes an event out of the wheel.
+     */
+    void remove(TimerEvent event) {
+        unlink(event);
+        event.wheel = null;
+        count--;
+    }
+
+    /**
+     * Takes an event out of its slot.
+     */
+    private static void unlink(TimerEvent event) {
+        event.previous.next = event.next;
+        event.next.previous = event.previous;
+        event.next = null;
+        event.previous = null;
+    }
+
+    /**
+     * Steps the wheel up to a tick, firing every event
+     * that's due on the way.
+     *
+     * @param tick Tick to step to
+     * @param level Level to hand the events
+     * @return Number of events fired
+     */
+    public int advance(long tick, Level level) {
+        int fired = 0;
+        while (now < tick) {
+            if (count == 0) {
+                // Nothing to fire on the way
+                now = tick;
+                break;
+            }
+            now++;
+            cascade(1);
+            TimerEvent head = slots[0][(int) now & MASK];
+            while (head.next != head) {
+                TimerEvent event = head.next;
+                unlink(event);
+                if (event.deadline <= now) {
+                    event.wheel = null;
+                    count--;
+                    event.fire(level);
+                    fired++;
+                } else {
+                    insert(event);
+                }
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Moves the events of the next slot of a wheel down,
+     * if the wheel below has just gone round.
+     */
+    private void cascade(int wheel) {
+        if (wheel == WHEELS || (now & ((1L << (wheel * BITS)) - 1)) != 0) {
+            return;
+        }
+        cascade(wheel + 1);
+        TimerEvent head = slots[wheel][(int) (now >>> (wheel * BITS)) & MASK];
+        // Moved in order, so events due at the same tick keep it
+        TimerEvent first = head.next;
+        TimerEvent last = head.previous;
+        if (first == head) {
+            return;
+        }
+        head.next = head;
+        head.previous = head;
+        last.next = null;
+        TimerEvent event = first;
+        while (event != null) {
+            TimerEvent following = event.next;
+            insert(event);
+            event = following;
+        }
+    }
+
+    /**
+     * Cancels every event.
+     */
+    public void clear() {
+        for (int w = 0; w < WHEELS; ++w) {
+            for (int s = 0; s < SLOTS; ++s) {
+                TimerEvent head = slots[w][s];
+                while (head.next != head) {
+                    TimerEvent event = head.next;
+                    unlink(event);
+                    event.wheel = null;
+                }
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Latest tick the wheel has been stepped to.
+     *
+     * @return tick
+     */
+    public long getTick() {
+        return now;
+    }
+
+    /**
+     * Number of events waiting.
+     *
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+}
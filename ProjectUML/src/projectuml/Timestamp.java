@@ -7,11 +7,14 @@ import java.io.*;
  * 
  * Records a marker in time and provides methods
  * for measuring how much time has passed since then.
+ * The time is read from the GameClock, not the wall clock.
  *
  * @author Jens Thuresson, Steve Eriksson
  */
 public class Timestamp implements Serializable {
 
+    private static final long serialVersionUID = 3274776858625655692L;
+
     private long stamp;
 
     /**
@@ -26,7 +29,14 @@ public class Timestamp implements Serializable {
      * (Re)sets a marker in time here.
      */
     public void reset() {
-        stamp = System.currentTimeMillis();
+        stamp = now();
+    }
+
+    /**
+     * Current game time in milliseconds.
+     */
+    private static long now() {
+        return GameClock.getInstance().getMillis();
     }
 
     /**
@@ -37,7 +47,7 @@ public class Timestamp implements Serializable {
      * @return True or false
      */
     public Boolean havePassed(long milliseconds) {
-        long diff = System.currentTimeMillis() - stamp;
+        long diff = now() - stamp;
         return diff >= milliseconds;
     }
 
@@ -47,7 +57,7 @@ public class Timestamp implements Serializable {
      * @return Time passed in milliseconds
      */
     public long getTimePassed() {
-        return System.currentTimeMillis() - stamp;
+        return now() - stamp;
     }
 
     /**
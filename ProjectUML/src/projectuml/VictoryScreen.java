@@ -50,7 +50,7 @@ public class VictoryScreen extends GameState {
      */
     private void initLevel() {
         level = new Level();
-        level.setScenery(new StarField(200));
+        level.setScenery(new StarField(200, level.getRandom()));
         
         // Fake playership
         playership = new PlayerShip(new Player());
@@ -71,15 +71,16 @@ public class VictoryScreen extends GameState {
         if (timestamp.havePassed(4000)) {
             // Create cyclic path with random points
             Path path = new Path(true);
-            int num = Randomizer.getRandomNumber(4, 12);
+            RandomSource random = level.getRandom();
+            int num = random.getNumber(4, 12);
             while (num-- > 0) {
-                int x = Randomizer.getRandomNumber(0, 640);
-                int y = Randomizer.getRandomNumber(0, 480);
+                int x = random.getNumber(0, 640);
+                int y = random.getNumber(0, 480);
                 path.addPoint(new Point(x, y));
             }
             
             // Create enemy and add it
-            EnemyShip ship = factory.createRandom();
+            EnemyShip ship = factory.createRandom(random);
             ship.setPath(path);
             level.addShip(ship);
             
@@ -22,6 +22,8 @@ import java.util.Iterator;
  */
 public class WeaponList implements Serializable, Iterable<Weapon> {
 
+    // Same as before size() and get() were added, so that old levels still load
+    private static final long serialVersionUID = -3797137378322883638L;
     private ArrayList<Weapon> weaponList = new ArrayList<Weapon>();
     private ArrayList<Point> weaponMount = new ArrayList<Point>();
     private int numberOfWeapons;
@@ -82,6 +84,25 @@ public class WeaponList implements Serializable, Iterable<Weapon> {
         return weaponList.listIterator();
     }
 
+    /**
+     * Number of weapons in the list.
+     * 
+     * @return Number of weapons
+     */
+    public int size() {
+        return weaponList.size();
+    }
+
+    /**
+     * Retrieves a weapon without creating an iterator.
+     * 
+     * @param index Between 0 and size()
+     * @return Weapon
+     */
+    public Weapon get(int index) {
+        return weaponList.get(index);
+    }
+
     /**
      * Set number of weapons that is supported by the ship.
      * This number is used to make the list cyclic. 